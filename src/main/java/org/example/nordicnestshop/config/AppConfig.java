@@ -2,8 +2,10 @@ package org.example.nordicnestshop.config;
 
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.web.config.EnableSpringDataWebSupport;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @Configuration
+@EnableScheduling
 @EnableSpringDataWebSupport(pageSerializationMode =
         EnableSpringDataWebSupport.PageSerializationMode.VIA_DTO)
 public class AppConfig {
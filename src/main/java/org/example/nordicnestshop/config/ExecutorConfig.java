@@ -0,0 +1,19 @@
+package org.example.nordicnestshop.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ExecutorConfig {
+
+    // Fan-out of blocking downstream calls, bounded per downstream by a ConcurrencyLimiter
+    @Bean(destroyMethod = "close")
+    public ExecutorService blockingIoExecutor(MeterRegistry meterRegistry) {
+        return ExecutorServiceMetrics.monitor(meterRegistry,
+                Executors.newVirtualThreadPerTaskExecutor(), "blockingIo");
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.nordicnestshop.config;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.StandardBasicTypes;
+
+public class PostgresFunctionContributor implements FunctionContributor {
+    public static final String ID_IN_ARRAY = "id_in_array";
+    public static final String TEXT_SEARCH_MATCH = "text_search_match";
+    public static final String TEXT_SEARCH_RANK = "text_search_rank";
+    public static final String TRIGRAM_WORD_MATCH = "trigram_word_match";
+    public static final String ROW_GREATER_THAN = "row_greater_than";
+    public static final String ROW_LESS_THAN = "row_less_than";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        BasicType<Boolean> booleanType = functionContributions.getTypeConfiguration()
+                .getBasicTypeRegistry()
+                .resolve(StandardBasicTypes.BOOLEAN);
+
+        // Binds the whole id set as one array parameter, which keeps the primary key
+        // index usable and is not limited by the number of JDBC bind parameters
+        functionContributions.getFunctionRegistry()
+                .patternDescriptorBuilder(ID_IN_ARRAY, "(?1 = any(?2))")
+                .setExactArgumentCount(2)
+                .setInvariantType(booleanType)
+                .register();
+
+        // The search_vector column is maintained by database triggers
+        functionContributions.getFunctionRegistry()
+                .patternDescriptorBuilder(TEXT_SEARCH_MATCH,
+                        "(?1 @@ product_search_query(?2))")
+                .setExactArgumentCount(2)
+                .setInvariantType(booleanType)
+                .register();
+        functionContributions.getFunctionRegistry()
+                .patternDescriptorBuilder(TEXT_SEARCH_RANK,
+                        "ts_rank(?1, product_search_query(?2))")
+                .setExactArgumentCount(2)
+                .setInvariantType(functionContributions.getTypeConfiguration()
+                        .getBasicTypeRegistry()
+                        .resolve(StandardBasicTypes.FLOAT))
+                .register();
+        functionContributions.getFunctionRegistry()
+                .patternDescriptorBuilder(TRIGRAM_WORD_MATCH, "(?1 <% ?2)")
+                .setExactArgumentCount(2)
+                .setInvariantType(booleanType)
+                .register();
+
+        // Row value comparison for keyset pagination, matches a (key, id) index range scan
+        functionContributions.getFunctionRegistry()
+                .patternDescriptorBuilder(ROW_GREATER_THAN, "((?1, ?2) > (?3, ?4))")
+                .setExactArgumentCount(4)
+                .setInvariantType(booleanType)
+                .register();
+        functionContributions.getFunctionRegistry()
+                .patternDescriptorBuilder(ROW_LESS_THAN, "((?1, ?2) < (?3, ?4))")
+                .setExactArgumentCount(4)
+                .setInvariantType(booleanType)
+                .register();
+    }
+}
@@ -1,15 +1,27 @@
 package org.example.nordicnestshop.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import java.net.URI;
+import org.example.nordicnestshop.service.concurrency.ConcurrencyLimiter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3AsyncClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.multipart.MultipartConfiguration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 
 @Configuration
+@ConditionalOnProperty(name = "storage.type", havingValue = "s3", matchIfMissing = true)
 public class S3Config {
 
     @Value("${aws.accessKeyId}")
@@ -21,13 +33,65 @@ public class S3Config {
     @Value("${aws.region}")
     private String regionName;
 
+    // Empty for AWS, set to the URL of an S3 compatible store such as MinIO otherwise
+    @Value("${aws.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${aws.s3.path-style-access:false}")
+    private boolean pathStyleAccess;
+
+    @Value("${aws.s3.max-connections:64}")
+    private int maxConnections;
+
+    @Value("${aws.s3.multipart.threshold:8MB}")
+    private DataSize multipartThreshold;
+
+    @Value("${aws.s3.multipart.part-size:5MB}")
+    private DataSize multipartPartSize;
+
     @Bean
-    public S3Client amazonS3() {
-        AwsCredentials credentials = AwsBasicCredentials.create(accessKey, secretKey);
+    public S3AsyncClient amazonS3() {
+        S3AsyncClientBuilder builder = S3AsyncClient.builder()
+                .region(Region.of(regionName))
+                .credentialsProvider(credentialsProvider())
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(maxConnections))
+                .forcePathStyle(pathStyleAccess)
+                .multipartEnabled(true)
+                .multipartConfiguration(MultipartConfiguration.builder()
+                        .thresholdInBytes(multipartThreshold.toBytes())
+                        .minimumPartSizeInBytes(multipartPartSize.toBytes())
+                        .build());
+        if (StringUtils.hasText(endpoint)) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
+    }
 
-        return S3Client.builder()
+    // Signs direct uploads from clients, no request is sent to S3
+    @Bean(destroyMethod = "close")
+    public S3Presigner s3Presigner() {
+        S3Presigner.Builder builder = S3Presigner.builder()
                 .region(Region.of(regionName))
-                .credentialsProvider(StaticCredentialsProvider.create(credentials))
-                .build();
+                .credentialsProvider(credentialsProvider())
+                .serviceConfiguration(S3Configuration.builder()
+                        .pathStyleAccessEnabled(pathStyleAccess)
+                        .build());
+        if (StringUtils.hasText(endpoint)) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
+    }
+
+    @Bean
+    public ConcurrencyLimiter s3ConcurrencyLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${aws.s3.max-concurrency:16}") int maxConcurrency) {
+        return new ConcurrencyLimiter("s3", maxConcurrency, meterRegistry);
+    }
+
+    private StaticCredentialsProvider credentialsProvider() {
+        AwsCredentials credentials = AwsBasicCredentials.create(accessKey, secretKey);
+        return StaticCredentialsProvider.create(credentials);
     }
 }
@@ -39,8 +39,11 @@ public class SecurityConfig {
                                 "/swagger-ui/**",
                                 "/v3/api-docs/**",
                                 "/categories/**",
-                                "/products/**")
+                                "/products/**",
+                                "/files/**",
+                                "/actuator/health")
                         .permitAll()
+                        .requestMatchers("/actuator/**").hasAuthority("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .httpBasic(Customizer.withDefaults())
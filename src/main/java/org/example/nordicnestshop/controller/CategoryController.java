@@ -13,7 +13,9 @@ import org.example.nordicnestshop.dto.category.CategoryDto;
 import org.example.nordicnestshop.dto.category.CreateCategoryDto;
 import org.example.nordicnestshop.dto.category.UpdateCategoryDto;
 import org.example.nordicnestshop.model.Category;
+import org.example.nordicnestshop.repository.projection.EntityVersionView;
 import org.example.nordicnestshop.service.CategoryService;
+import org.example.nordicnestshop.service.catalog.CatalogRevalidation;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
@@ -28,6 +30,8 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 
 @Tag(name = "Category Management",
         description = """
@@ -39,6 +43,7 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/categories")
 public class CategoryController {
     private final CategoryService categoryService;
+    private final CatalogRevalidation catalogRevalidation;
 
     @Operation(
             summary = "Create a new category",
@@ -118,12 +123,18 @@ public class CategoryController {
             @ApiResponse(responseCode = "200", description = "Category found",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = CategoryDto.class))),
+            @ApiResponse(responseCode = "304", description = "Category not modified"),
             @ApiResponse(responseCode = "404", description = "Category not found")
     })
     @GetMapping("/{id}")
     public CategoryDto getCategoryById(
             @Parameter(description = "Category ID", required = true, example = "1")
-            @PathVariable Long id) {
+            @PathVariable Long id,
+            WebRequest request) {
+        EntityVersionView version = categoryService.getVersionById(id);
+        if (request.checkNotModified(version.getEtag(), version.getUpdatedAt().toEpochMilli())) {
+            return null;
+        }
         return categoryService.getById(id);
     }
 
@@ -138,13 +149,17 @@ public class CategoryController {
             @ApiResponse(responseCode = "200",
                     description = "List of categories retrieved successfully",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = Page.class)))
+                            schema = @Schema(implementation = Page.class))),
+            @ApiResponse(responseCode = "304",
+                    description = "Catalog not modified since the given ETag")
     })
     @GetMapping
     public Page<CategoryDto> getAll(
             @Parameter(description = "Pagination and sorting parameters")
-            @PageableDefault(size = 5) Pageable pageable) {
-        return categoryService.getAll(pageable);
+            @PageableDefault(size = 5) Pageable pageable,
+            ServletWebRequest request) {
+        return catalogRevalidation.revalidate(request,
+                () -> categoryService.getAll(pageable));
     }
 
     @Operation(
@@ -154,12 +169,18 @@ public class CategoryController {
             @ApiResponse(responseCode = "200", description = "Category found",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = CategoryDto.class))),
+            @ApiResponse(responseCode = "304", description = "Category not modified"),
             @ApiResponse(responseCode = "404", description = "Category not found")
     })
     @GetMapping("/title")
     public CategoryDto getByTitle(
             @Parameter(description = "Category title", required = true, example = "Furniture")
-            @RequestParam String title) {
+            @RequestParam String title,
+            WebRequest request) {
+        EntityVersionView version = categoryService.getVersionByTitle(title);
+        if (request.checkNotModified(version.getEtag(), version.getUpdatedAt().toEpochMilli())) {
+            return null;
+        }
         return categoryService.getByTitle(title);
     }
 
@@ -173,7 +194,9 @@ public class CategoryController {
             @ApiResponse(responseCode = "200",
                     description = "Categories retrieved successfully",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = Page.class)))
+                            schema = @Schema(implementation = Page.class))),
+            @ApiResponse(responseCode = "304",
+                    description = "Catalog not modified since the given ETag")
     })
     @GetMapping("/type")
     public Page<CategoryDto> getAllByStatus(
@@ -181,7 +204,9 @@ public class CategoryController {
                     required = true, example = "DESIGN")
             @RequestParam Category.CategoryType type,
             @Parameter(description = "Pagination parameters")
-            Pageable pageable) {
-        return categoryService.getAllByType(pageable, type);
+            Pageable pageable,
+            ServletWebRequest request) {
+        return catalogRevalidation.revalidate(request,
+                () -> categoryService.getAllByType(pageable, type));
     }
 }
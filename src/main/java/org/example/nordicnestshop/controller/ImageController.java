@@ -0,0 +1,54 @@
+package org.example.nordicnestshop.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.example.nordicnestshop.dto.image.CreateImageUploadSessionDto;
+import org.example.nordicnestshop.dto.image.ImageUploadSessionDto;
+import org.example.nordicnestshop.service.image.ImageService;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(name = "Image Management",
+        description = "Endpoints for uploading images directly to storage.")
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/images")
+public class ImageController {
+    private final ImageService imageService;
+
+    @Operation(
+            summary = "Create an image upload session",
+            description = """
+                    Returns a presigned url per file. The client PUTs each image to its url
+                    with the returned headers and passes the keys as imageKeys or imageKey
+                    when creating or updating products and categories.
+                    \nNecessary role: **ADMIN**
+                    """)
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "Upload urls successfully created",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ImageUploadSessionDto.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid request data"),
+            @ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    @PostMapping("/upload-sessions")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @ResponseStatus(HttpStatus.CREATED)
+    public ImageUploadSessionDto createUploadSession(
+            @Parameter(description = "Files to be uploaded", required = true)
+            @RequestBody @Valid CreateImageUploadSessionDto requestDto) {
+        return imageService.createUploadSession(requestDto);
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.nordicnestshop.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import lombok.RequiredArgsConstructor;
+import org.example.nordicnestshop.service.storage.local.LocalStorageService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(name = "Local Storage",
+        description = "Serves stored images when the local filesystem storage is enabled.")
+@RestController
+@RequiredArgsConstructor
+@RequestMapping(LocalStorageController.BASE_PATH)
+@ConditionalOnProperty(name = "storage.type", havingValue = "local")
+public class LocalStorageController {
+    static final String BASE_PATH = "/files";
+    private static final String UPLOAD_PREFIX = "uploads/";
+
+    private final LocalStorageService localStorageService;
+
+    @Operation(summary = "Get a stored file")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "File content"),
+            @ApiResponse(responseCode = "404", description = "File not found")
+    })
+    @GetMapping("/**")
+    public ResponseEntity<Resource> getFile(HttpServletRequest request) {
+        String key = request.getRequestURI()
+                .substring(request.getContextPath().length() + BASE_PATH.length() + 1);
+        Path path = localStorageService.getFile(key);
+        // Stored images are keyed by their content and never change
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(localStorageService.getContentType(path)))
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                .body(new FileSystemResource(path));
+    }
+
+    @Operation(
+            summary = "Upload a file to a presigned url",
+            description = "Target of the urls returned by /images/upload-sessions.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "File stored"),
+            @ApiResponse(responseCode = "400",
+                    description = "Body doesn't match the signed length"),
+            @ApiResponse(responseCode = "403", description = "Invalid or expired signature")
+    })
+    @PutMapping("/uploads/{id}")
+    public void uploadFile(@PathVariable String id,
+                           @RequestParam long expires,
+                           @RequestParam String signature,
+                           @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                           HttpServletRequest request) throws IOException {
+        localStorageService.receiveUpload(UPLOAD_PREFIX + id, contentType,
+                request.getContentLengthLong(), expires, signature, request.getInputStream());
+    }
+}
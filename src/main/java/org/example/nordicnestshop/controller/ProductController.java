@@ -14,9 +14,13 @@ import org.example.nordicnestshop.dto.product.CreateProductDto;
 import org.example.nordicnestshop.dto.product.ProductFullDto;
 import org.example.nordicnestshop.dto.product.ProductSearchResponseDto;
 import org.example.nordicnestshop.dto.product.UpdateProductDto;
+import org.example.nordicnestshop.repository.projection.EntityVersionView;
 import org.example.nordicnestshop.service.ProductService;
+import org.example.nordicnestshop.service.catalog.CatalogRevalidation;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -27,6 +31,8 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 
 @Tag(name = "Product Management",
         description = """
@@ -38,6 +44,7 @@ import org.springframework.web.bind.annotation.RestController;
 @RequiredArgsConstructor
 public class ProductController {
     private final ProductService productService;
+    private final CatalogRevalidation catalogRevalidation;
 
     @Operation(
             summary = "Create a new product",
@@ -118,13 +125,22 @@ public class ProductController {
             @ApiResponse(responseCode = "200", description = "Product found",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = ProductFullDto.class))),
+            @ApiResponse(responseCode = "304", description = "Product not modified"),
             @ApiResponse(responseCode = "404", description = "Product not found")
     })
     @GetMapping("/{id}")
-    public ProductFullDto getProductById(
+    public ResponseEntity<byte[]> getProductById(
             @Parameter(description = "Product ID", required = true, example = "1")
-            @PathVariable Long id) {
-        return productService.getById(id);
+            @PathVariable Long id,
+            WebRequest request) {
+        // Revalidation only needs the version, the document is loaded for changed products
+        EntityVersionView version = productService.getVersion(id);
+        if (request.checkNotModified(version.getEtag(), version.getUpdatedAt().toEpochMilli())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(productService.getJsonById(id, version.getVersion()));
     }
 
     @Operation(
@@ -138,14 +154,22 @@ public class ProductController {
                             **Filtering Options:**
                             
                             - Filter by category IDs (`categoryIds`)
-                            - Perform a semantic search by product name or description
-                             (`searchText`)
+                            - Perform a full-text search by title, article, description
+                             and attribute values, ranked by relevance (`searchText`)
+                            - Choose `searchMode=fuzzy` for typo-tolerant title and article
+                             matching, exact searches without hits fall back to it (`searchMode`)
                             - Set a price range (`minPrice` and `maxPrice`)
                             - Apply attribute-based filtering (`attributes`)
                             
                             **Pagination & Sorting:**
                             
                             - Supports pageable parameters (`page_number`, `page_size`)
+                            - Sort by a single `id`, `price` or `title` order (`sort=price,asc`)
+                            - Pass an empty `cursor` for the first page and the returned
+                             `nextCursor` for the following ones, deep pages cost the same as
+                             the first one and the total count is skipped (`cursor`)
+                            - Skip the total count with `count=none`, or get a cheap approximate
+                             `estimatedTotal` instead with `count=estimate` (`count`)
                             
                             **Example Usage:**
                             
@@ -157,6 +181,8 @@ public class ProductController {
     @ApiResponses({
             @ApiResponse(responseCode = "200",
                     description = "Successfully retrieved products"),
+            @ApiResponse(responseCode = "304",
+                    description = "Catalog not modified since the given ETag"),
             @ApiResponse(responseCode = "400",
                     description = "Invalid request parameters"),
             @ApiResponse(responseCode = "500", description = "Server error")
@@ -176,7 +202,9 @@ public class ProductController {
                             """,
                     example = "page_number=0&page_size=10"
             )
-            Pageable pageable) {
-        return productService.getAllByCategoryIdsAndAttributes(attributes, pageable);
+            Pageable pageable,
+            ServletWebRequest request) {
+        return catalogRevalidation.revalidate(request,
+                () -> productService.getAllByCategoryIdsAndAttributes(attributes, pageable));
     }
 }
@@ -20,5 +20,8 @@ public class UpdateCategoryDto {
 
     private MultipartFile image;
 
+    // Key of an image uploaded directly to storage, instead of image
+    private String imageKey;
+
     private Category.CategoryType type;
 }
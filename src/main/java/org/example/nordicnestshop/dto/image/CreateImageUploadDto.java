@@ -0,0 +1,16 @@
+package org.example.nordicnestshop.dto.image;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class CreateImageUploadDto {
+    @NotBlank
+    private String contentType;
+
+    @Positive
+    private long size;
+}
@@ -0,0 +1,17 @@
+package org.example.nordicnestshop.dto.image;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class CreateImageUploadSessionDto {
+    @NotEmpty
+    @Size(max = 10)
+    @Valid
+    private List<CreateImageUploadDto> files;
+}
@@ -0,0 +1,18 @@
+package org.example.nordicnestshop.dto.image;
+
+import java.time.Instant;
+import java.util.Map;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ImageUploadDto {
+    private String key;
+
+    private String uploadUrl;
+
+    private Map<String, String> headers;
+
+    private Instant expiresAt;
+}
@@ -0,0 +1,11 @@
+package org.example.nordicnestshop.dto.image;
+
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ImageUploadSessionDto {
+    private List<ImageUploadDto> uploads;
+}
@@ -31,6 +31,10 @@ public class CreateProductDto {
     @Size(max = 10)
     private List<MultipartFile> images;
 
+    // Keys of images uploaded directly to storage, instead of images
+    @Size(max = 10)
+    private List<String> imageKeys;
+
     @Size(max = 10)
     private List<Long> categoryIds;
 
@@ -0,0 +1,17 @@
+package org.example.nordicnestshop.dto.product;
+
+import java.math.BigDecimal;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class PriceBucketDto {
+    private BigDecimal from;
+    private BigDecimal to;
+    private Long count;
+}
@@ -0,0 +1,18 @@
+package org.example.nordicnestshop.dto.product;
+
+import java.math.BigDecimal;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class PriceStatisticsDto {
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private List<PriceBucketDto> histogram;
+}
@@ -21,6 +21,8 @@ public class ProductFullDto {
 
     private List<String> images;
 
+    private List<String> thumbnails;
+
     private List<Long> categoryIds;
 
     private List<AttributeDto> attributes;
@@ -7,15 +7,21 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import org.springframework.data.domain.Page;
+import org.example.nordicnestshop.model.enums.SearchMode;
+import org.springframework.data.domain.Slice;
 
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
 public class ProductSearchResponseDto {
-    private Page<ProductDto> products;
+    private Slice<ProductDto> products;
     private Map<String, List<String>> availableAttributes;
+    private Map<String, Map<String, Long>> attributeFacets;
     private BigDecimal minPrice;
     private BigDecimal maxPrice;
+    private List<PriceBucketDto> priceHistogram;
+    private SearchMode searchMode;
+    private String nextCursor;
+    private Long estimatedTotal;
 }
@@ -0,0 +1,6 @@
+package org.example.nordicnestshop.event;
+
+import java.util.List;
+
+public record ImagesReleasedEvent(List<String> urls) {
+}
@@ -0,0 +1,4 @@
+package org.example.nordicnestshop.event;
+
+public record ProductChangedEvent(Long productId) {
+}
@@ -16,6 +16,7 @@ import org.example.nordicnestshop.model.Category;
 import org.example.nordicnestshop.model.product.Attribute;
 import org.example.nordicnestshop.model.product.Product;
 import org.example.nordicnestshop.model.product.ProductImage;
+import org.example.nordicnestshop.repository.projection.ProductCardView;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
@@ -27,11 +28,14 @@ public interface ProductMapper {
     @Mapping(target = "categoryIds", source = "categories",
             qualifiedByName = "setCategoriesToIds")
     @Mapping(target = "images", source = "images", qualifiedByName = "setImagesUrl")
+    @Mapping(target = "thumbnails", source = "images", qualifiedByName = "setThumbnailsUrl")
     ProductFullDto toFullDto(Product product);
 
     @Mapping(target = "mainImage", source = "images", qualifiedByName = "setMainImagesUrl")
     ProductDto toDto(Product product);
 
+    ProductDto toDto(ProductCardView product);
+
     @Mapping(target = "categories", source = "categoryIds",
             qualifiedByName = "setCategoriesFromIds")
     @Mapping(target = "images", ignore = true)
@@ -84,15 +88,27 @@ public interface ProductMapper {
                 .collect(Collectors.toList());
     }
 
+    @Named("setThumbnailsUrl")
+    default List<String> setThumbnailsUrl(List<ProductImage> images) {
+        if (images == null) {
+            return new ArrayList<>();
+        }
+        return images.stream()
+                .map(img -> img.getThumbnailUrl() != null
+                        ? img.getThumbnailUrl()
+                        : img.getImageUrl())
+                .collect(Collectors.toList());
+    }
+
     @Named("setMainImagesUrl")
     default String setMainImagesUrl(List<ProductImage> images) {
         if (images == null) {
             return "";
         }
-        return images.stream().filter(img -> img.getOrderIndex() == 0)
+        ProductImage mainImage = images.stream().filter(img -> img.getOrderIndex() == 0)
                 .findFirst()
-                .orElse(new ProductImage())
-                .getImageUrl();
+                .orElse(new ProductImage());
+        return mainImage.getCardUrl() != null ? mainImage.getCardUrl() : mainImage.getImageUrl();
     }
 
     default Set<Attribute> setAttributesWithProduct(List<CreateAttributeDto> attributes,
@@ -0,0 +1,38 @@
+package org.example.nordicnestshop.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * Written by database triggers on every catalog table, so it also covers writes
+ * that bypass the application.
+ */
+@Entity
+@Getter
+@Setter
+@Immutable
+@Table(name = "catalog_changes")
+public class CatalogChange {
+    @Id
+    private Long generation;
+
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "category_id")
+    private Long categoryId;
+
+    @Column(name = "changed_at", nullable = false)
+    private Instant changedAt;
+
+    // Written on TRUNCATE: everything derived from the catalog has to be rebuilt
+    public boolean isFullReset() {
+        return productId == null && categoryId == null;
+    }
+}
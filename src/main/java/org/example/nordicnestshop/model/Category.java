@@ -11,6 +11,7 @@ import jakarta.persistence.ManyToMany;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
+import java.time.Instant;
 import java.util.Set;
 import lombok.Getter;
 import lombok.Setter;
@@ -41,6 +42,13 @@ public class Category {
     @Column(nullable = false)
     private CategoryType type;
 
+    // Both are maintained by database triggers
+    @Column(insertable = false, updatable = false)
+    private Long version;
+
+    @Column(insertable = false, updatable = false)
+    private Instant updatedAt;
+
     @ManyToMany(mappedBy = "categories")
     private Set<Product> products;
 
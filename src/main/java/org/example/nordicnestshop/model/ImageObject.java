@@ -0,0 +1,26 @@
+package org.example.nordicnestshop.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * A stored image object and the number of product image and category rows pointing at it.
+ * Objects are shared by content, the counts are kept by database triggers.
+ */
+@Entity
+@Getter
+@Setter
+@Immutable
+@Table(name = "image_objects")
+public class ImageObject {
+    @Id
+    private String url;
+
+    @Column(name = "reference_count", nullable = false)
+    private int referenceCount;
+}
@@ -0,0 +1,7 @@
+package org.example.nordicnestshop.model.enums;
+
+public enum CountMode {
+    EXACT,
+    ESTIMATE,
+    NONE
+}
@@ -0,0 +1,6 @@
+package org.example.nordicnestshop.model.enums;
+
+public enum SearchMode {
+    EXACT,
+    FUZZY
+}
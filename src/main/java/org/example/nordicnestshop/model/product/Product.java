@@ -16,6 +16,7 @@ import jakarta.persistence.Table;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Size;
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
 import java.util.Set;
 import lombok.Getter;
@@ -47,6 +48,16 @@ public class Product {
     @DecimalMin(value = "0.01")
     private BigDecimal price;
 
+    @Column(columnDefinition = "tsvector", insertable = false, updatable = false)
+    private String searchVector;
+
+    // Both are maintained by database triggers
+    @Column(insertable = false, updatable = false)
+    private Long version;
+
+    @Column(insertable = false, updatable = false)
+    private Instant updatedAt;
+
     @OneToMany(mappedBy = "product",
             fetch = FetchType.LAZY,
             cascade = CascadeType.ALL,
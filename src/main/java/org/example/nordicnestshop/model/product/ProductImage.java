@@ -28,6 +28,15 @@ public class ProductImage {
     @Pattern(regexp = "^(https?|ftp)://.*$", message = "Invalid image URL format.")
     private String imageUrl;
 
+    // Images uploaded before the resized variants existed only have imageUrl
+    @Column(length = 2048)
+    @Size(max = 2048)
+    private String cardUrl;
+
+    @Column(length = 2048)
+    @Size(max = 2048)
+    private String thumbnailUrl;
+
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
@@ -1,12 +1,26 @@
 package org.example.nordicnestshop.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 import org.example.nordicnestshop.model.product.Attribute;
 import org.example.nordicnestshop.model.product.Product;
+import org.example.nordicnestshop.repository.projection.ProductAttributeView;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface AttributeRepository extends JpaRepository<Attribute, Long> {
+public interface AttributeRepository extends JpaRepository<Attribute, Long>,
+        AttributeRepositoryCustom {
     @EntityGraph(attributePaths = "product")
     List<Attribute> findAllByProductIn(List<Product> products);
+
+    @Query("SELECT a.product.id AS productId, a.key AS key, a.value AS value FROM Attribute a")
+    Stream<ProductAttributeView> streamAllViews();
+
+    @Query("SELECT a.product.id AS productId, a.key AS key, a.value AS value FROM Attribute a "
+            + "WHERE a.product.id IN :productIds")
+    List<ProductAttributeView> findAllViewsByProductIdIn(
+            @Param("productIds") Collection<Long> productIds);
 }
@@ -0,0 +1,11 @@
+package org.example.nordicnestshop.repository;
+
+import java.util.List;
+import org.example.nordicnestshop.model.product.Product;
+import org.example.nordicnestshop.repository.projection.AttributeValueCount;
+import org.springframework.data.jpa.domain.Specification;
+
+public interface AttributeRepositoryCustom {
+    List<AttributeValueCount> countValuesByProductSpecification(
+            Specification<Product> specification);
+}
@@ -0,0 +1,45 @@
+package org.example.nordicnestshop.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import java.util.List;
+import org.example.nordicnestshop.model.product.Attribute;
+import org.example.nordicnestshop.model.product.Product;
+import org.example.nordicnestshop.repository.projection.AttributeValueCount;
+import org.springframework.data.jpa.domain.Specification;
+
+public class AttributeRepositoryCustomImpl implements AttributeRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<AttributeValueCount> countValuesByProductSpecification(
+            Specification<Product> specification) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<AttributeValueCount> query =
+                criteriaBuilder.createQuery(AttributeValueCount.class);
+        Root<Attribute> attribute = query.from(Attribute.class);
+
+        Subquery<Long> products = query.subquery(Long.class);
+        Root<Product> product = products.from(Product.class);
+        products.select(product.get("id"));
+        Predicate predicate = specification.toPredicate(product, query, criteriaBuilder);
+        if (predicate != null) {
+            products.where(predicate);
+        }
+
+        query.select(criteriaBuilder.construct(AttributeValueCount.class,
+                        attribute.get("key"),
+                        attribute.get("value"),
+                        criteriaBuilder.countDistinct(attribute.get("product").get("id"))))
+                .where(attribute.get("product").get("id").in(products))
+                .groupBy(attribute.get("key"), attribute.get("value"));
+
+        return entityManager.createQuery(query).getResultList();
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.nordicnestshop.repository;
+
+import java.time.Instant;
+import java.util.List;
+import org.example.nordicnestshop.model.CatalogChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface CatalogChangeRepository extends JpaRepository<CatalogChange, Long> {
+    @Query(value = "SELECT generation FROM catalog_generation WHERE id = 1", nativeQuery = true)
+    long getCurrentGeneration();
+
+    List<CatalogChange> findAllByGenerationGreaterThanOrderByGeneration(Long generation,
+                                                                        Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM CatalogChange c WHERE c.changedAt < :before")
+    int deleteAllChangedBefore(@Param("before") Instant before);
+}
@@ -3,6 +3,7 @@ package org.example.nordicnestshop.repository;
 import java.util.List;
 import java.util.Optional;
 import org.example.nordicnestshop.model.Category;
+import org.example.nordicnestshop.repository.projection.EntityVersionView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -24,4 +25,12 @@ public interface CategoryRepository extends JpaRepository<Category,Long> {
     void deleteCategoryAndAssociations(@Param("categoryId") Long categoryId);
 
     List<Category> getCategoriesByIdIn(List<Long> id);
+
+    @Query("SELECT c.id AS id, c.version AS version, c.updatedAt AS updatedAt FROM Category c "
+            + "WHERE c.id = :id")
+    Optional<EntityVersionView> findVersionById(@Param("id") Long id);
+
+    @Query("SELECT c.id AS id, c.version AS version, c.updatedAt AS updatedAt FROM Category c "
+            + "WHERE c.title = :title")
+    Optional<EntityVersionView> findVersionByTitle(@Param("title") String title);
 }
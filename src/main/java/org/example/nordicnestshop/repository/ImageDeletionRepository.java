@@ -0,0 +1,35 @@
+package org.example.nordicnestshop.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import org.example.nordicnestshop.model.ImageDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface ImageDeletionRepository extends JpaRepository<ImageDeletion, Long> {
+    // Due entries are leased until leaseUntil, so concurrent workers never claim the same rows
+    @Transactional
+    @Query(value = "UPDATE image_deletions SET next_attempt_at = :leaseUntil "
+            + "WHERE id IN (SELECT id FROM image_deletions WHERE next_attempt_at <= now() "
+            + "ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED) RETURNING *",
+            nativeQuery = true)
+    List<ImageDeletion> claimDue(@Param("leaseUntil") Instant leaseUntil,
+                                 @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ImageDeletion d SET d.attempts = d.attempts + 1, "
+            + "d.nextAttemptAt = :nextAttemptAt, d.lastError = :lastError WHERE d.id = :id")
+    void reschedule(@Param("id") Long id,
+                    @Param("nextAttemptAt") Instant nextAttemptAt,
+                    @Param("lastError") String lastError);
+
+    @Query(value = "SELECT DISTINCT substring(url from '[^/]+$') FROM image_deletions "
+            + "WHERE substring(url from '[^/]+$') IN (:keys)",
+            nativeQuery = true)
+    List<String> findKeysByKeyIn(@Param("keys") Collection<String> keys);
+}
@@ -0,0 +1,37 @@
+package org.example.nordicnestshop.repository;
+
+import java.util.Collection;
+import java.util.List;
+import org.example.nordicnestshop.model.ImageObject;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface ImageObjectRepository extends JpaRepository<ImageObject, String> {
+    @Transactional
+    @Query(value = "DELETE FROM image_objects "
+            + "WHERE url IN (:urls) AND reference_count <= 0 RETURNING url",
+            nativeQuery = true)
+    List<String> deleteUnreferencedByUrlIn(@Param("urls") Collection<String> urls);
+
+    // Locks the rows of the urls until the transaction ends, inserting unreferenced ones, so
+    // stores and deletions of the same object are serialized. Returns the referenced urls.
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query(value = "WITH claimed AS (INSERT INTO image_objects (url, reference_count) "
+            + "SELECT DISTINCT candidate.url, 0 "
+            + "FROM unnest(CAST(:urls AS TEXT[])) AS candidate(url) ORDER BY candidate.url "
+            + "ON CONFLICT (url) DO UPDATE SET reference_count = image_objects.reference_count "
+            + "RETURNING url, reference_count) "
+            + "SELECT url FROM claimed WHERE reference_count > 0",
+            nativeQuery = true)
+    List<String> claimAllByUrlIn(@Param("urls") String[] urls);
+
+    // Objects are matched by key, the last segment of their url, so urls stored under an earlier
+    // public url still match the bucket
+    @Query(value = "SELECT substring(url from '[^/]+$') FROM image_objects "
+            + "WHERE substring(url from '[^/]+$') IN (:keys) AND reference_count > 0",
+            nativeQuery = true)
+    List<String> findReferencedKeysByKeyIn(@Param("keys") Collection<String> keys);
+}
@@ -1,18 +1,78 @@
 package org.example.nordicnestshop.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 import org.example.nordicnestshop.model.product.Product;
+import org.example.nordicnestshop.repository.projection.EntityVersionView;
+import org.example.nordicnestshop.repository.projection.ProductCategoryView;
+import org.example.nordicnestshop.repository.projection.ProductDocumentView;
+import org.example.nordicnestshop.repository.projection.ProductPriceView;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
-import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface ProductRepository extends JpaRepository<Product,Long>,
-        JpaSpecificationExecutor<Product> {
+        JpaSpecificationExecutor<Product>, ProductRepositoryCustom {
     Page<Product> findAll(Specification<Product> specification, Pageable pageable);
 
-    @EntityGraph(attributePaths = {"categories", "attributes", "images"})
-    Optional<Product> findById(Long id);
+    @Query("SELECT p.id AS id, p.price AS price FROM Product p")
+    Stream<ProductPriceView> streamAllPriceViews();
+
+    @Query("SELECT p.id AS id, p.price AS price FROM Product p WHERE p.id IN :ids")
+    List<ProductPriceView> findAllPriceViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p.id AS productId, c.id AS categoryId FROM Product p JOIN p.categories c")
+    Stream<ProductCategoryView> streamAllCategoryViews();
+
+    @Query("SELECT p.id AS productId, c.id AS categoryId FROM Product p JOIN p.categories c "
+            + "WHERE p.id IN :productIds")
+    List<ProductCategoryView> findAllCategoryViewsByProductIdIn(
+            @Param("productIds") Collection<Long> productIds);
+
+    @Query("SELECT p.id AS id, p.title AS title, p.article AS article, "
+            + "p.description AS description, p.price AS price FROM Product p "
+            + "WHERE p.id > :afterId ORDER BY p.id")
+    List<ProductDocumentView> findDocumentViewsAfter(@Param("afterId") Long afterId,
+                                                     Limit limit);
+
+    @Query("SELECT p.id AS id, p.title AS title, p.article AS article, "
+            + "p.description AS description, p.price AS price FROM Product p "
+            + "WHERE p.id IN :ids")
+    List<ProductDocumentView> findAllDocumentViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p.id AS id, p.version AS version, p.updatedAt AS updatedAt FROM Product p "
+            + "WHERE p.id = :id")
+    Optional<EntityVersionView> findVersionById(@Param("id") Long id);
+
+    /**
+     * Builds the {@code ProductFullDto} document in the database, field order and nesting
+     * must stay in line with the DTO.
+     */
+    @Query(value = "SELECT CAST(json_build_object("
+            + "'id', p.id, 'title', p.title, 'description', p.description, "
+            + "'article', p.article, 'price', p.price, "
+            + "'images', coalesce((SELECT json_agg(i.image_url ORDER BY i.order_index) "
+            + "FROM product_images i WHERE i.product_id = p.id), CAST('[]' AS JSON)), "
+            + "'thumbnails', coalesce((SELECT json_agg(coalesce(i.thumbnail_url, i.image_url) "
+            + "ORDER BY i.order_index) "
+            + "FROM product_images i WHERE i.product_id = p.id), CAST('[]' AS JSON)), "
+            + "'categoryIds', coalesce((SELECT json_agg(pc.category_id ORDER BY pc.category_id) "
+            + "FROM product_category pc WHERE pc.product_id = p.id), CAST('[]' AS JSON)), "
+            + "'attributes', coalesce((SELECT json_agg(json_build_object("
+            + "'key', a.key, 'value', a.value) ORDER BY a.id) "
+            + "FROM attributes a WHERE a.product_id = p.id), CAST('[]' AS JSON))"
+            + ") AS TEXT) FROM products p WHERE p.id = :id",
+            nativeQuery = true)
+    Optional<String> findDetailJsonById(@Param("id") Long id);
+
+    @Query(value = "SELECT set_config('pg_trgm.word_similarity_threshold', :threshold, true)",
+            nativeQuery = true)
+    String setWordSimilarityThreshold(@Param("threshold") String threshold);
 }
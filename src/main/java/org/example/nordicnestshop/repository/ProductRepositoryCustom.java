@@ -0,0 +1,31 @@
+package org.example.nordicnestshop.repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import org.example.nordicnestshop.model.product.Product;
+import org.example.nordicnestshop.repository.projection.PriceBucketCount;
+import org.example.nordicnestshop.repository.projection.PriceRange;
+import org.example.nordicnestshop.repository.projection.ProductCardView;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+public interface ProductRepositoryCustom {
+    PriceRange findPriceRange(Specification<Product> specification);
+
+    List<PriceBucketCount> countByPriceBuckets(Specification<Product> specification,
+                                               BigDecimal min, BigDecimal max, int buckets);
+
+    /**
+     * Loads one row more than the page size to tell whether there is a next page, instead of
+     * running a count query.
+     */
+    Slice<ProductCardView> findCardSlice(Specification<Product> specification,
+                                         Pageable pageable);
+
+    Page<ProductCardView> findCardPage(Specification<Product> specification, Pageable pageable);
+
+    List<ProductCardView> findAllCardsByIdIn(Collection<Long> ids);
+}
@@ -0,0 +1,148 @@
+package org.example.nordicnestshop.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import org.example.nordicnestshop.model.product.Product;
+import org.example.nordicnestshop.model.product.ProductImage;
+import org.example.nordicnestshop.repository.projection.PriceBucketCount;
+import org.example.nordicnestshop.repository.projection.PriceRange;
+import org.example.nordicnestshop.repository.projection.ProductCardView;
+import org.example.nordicnestshop.repository.specification.ProductSpecifications;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public PriceRange findPriceRange(Specification<Product> specification) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<PriceRange> query = criteriaBuilder.createQuery(PriceRange.class);
+        Root<Product> root = query.from(Product.class);
+
+        query.select(criteriaBuilder.construct(PriceRange.class,
+                criteriaBuilder.min(root.get("price")),
+                criteriaBuilder.max(root.get("price"))));
+        applySpecification(specification, root, query, criteriaBuilder);
+
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    @Override
+    public List<PriceBucketCount> countByPriceBuckets(Specification<Product> specification,
+                                                      BigDecimal min, BigDecimal max,
+                                                      int buckets) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<PriceBucketCount> query =
+                criteriaBuilder.createQuery(PriceBucketCount.class);
+        Root<Product> root = query.from(Product.class);
+
+        // width_bucket puts the upper bound itself into bucket n + 1
+        Expression<Integer> bucket = criteriaBuilder.function("least", Integer.class,
+                criteriaBuilder.function("width_bucket", Integer.class, root.get("price"),
+                        criteriaBuilder.literal(min), criteriaBuilder.literal(max),
+                        criteriaBuilder.literal(buckets)),
+                criteriaBuilder.literal(buckets));
+
+        query.select(criteriaBuilder.construct(PriceBucketCount.class,
+                        bucket, criteriaBuilder.count(root)))
+                .groupBy(bucket);
+        applySpecification(specification, root, query, criteriaBuilder);
+
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    @Override
+    public Slice<ProductCardView> findCardSlice(Specification<Product> specification,
+                                                Pageable pageable) {
+        TypedQuery<ProductCardView> query = createCardQuery(specification, pageable.getSort());
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(query.getResultList(), pageable, false);
+        }
+        List<ProductCardView> content = query
+                .setFirstResult(Math.toIntExact(pageable.getOffset()))
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        boolean hasNext = content.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content,
+                pageable, hasNext);
+    }
+
+    @Override
+    public Page<ProductCardView> findCardPage(Specification<Product> specification,
+                                              Pageable pageable) {
+        TypedQuery<ProductCardView> query = createCardQuery(specification, pageable.getSort());
+        if (pageable.isPaged()) {
+            query.setFirstResult(Math.toIntExact(pageable.getOffset()))
+                    .setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(query.getResultList(), pageable,
+                () -> count(specification));
+    }
+
+    @Override
+    public List<ProductCardView> findAllCardsByIdIn(Collection<Long> ids) {
+        return createCardQuery(ProductSpecifications.idIn(ids), Sort.by("id"))
+                .getResultList();
+    }
+
+    private long count(Specification<Product> specification) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<Product> root = query.from(Product.class);
+
+        query.select(criteriaBuilder.count(root));
+        applySpecification(specification, root, query, criteriaBuilder);
+
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    // Only the card columns, the main image is the card size variant of the first image
+    private TypedQuery<ProductCardView> createCardQuery(Specification<Product> specification,
+                                                        Sort sort) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductCardView> query = criteriaBuilder.createQuery(ProductCardView.class);
+        Root<Product> root = query.from(Product.class);
+
+        Subquery<String> mainImage = query.subquery(String.class);
+        Root<ProductImage> image = mainImage.from(ProductImage.class);
+        mainImage.select(criteriaBuilder.least(criteriaBuilder.coalesce(
+                        image.<String>get("cardUrl"), image.<String>get("imageUrl"))))
+                .where(criteriaBuilder.equal(image.get("product"), root),
+                        criteriaBuilder.equal(image.get("orderIndex"), 0));
+
+        query.select(criteriaBuilder.construct(ProductCardView.class,
+                root.get("id"), root.get("title"), root.get("article"), root.get("price"),
+                mainImage));
+        applySpecification(specification, root, query, criteriaBuilder);
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+        }
+        return entityManager.createQuery(query);
+    }
+
+    private void applySpecification(Specification<Product> specification, Root<Product> root,
+                                    CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder) {
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package org.example.nordicnestshop.repository.projection;
+
+public record AttributeValueCount(String key, String value, Long count) {
+}
@@ -0,0 +1,19 @@
+package org.example.nordicnestshop.repository.projection;
+
+import java.time.Instant;
+
+public interface EntityVersionView {
+    Long getId();
+
+    Long getVersion();
+
+    // Moves forward by at least a second with every version, so Last-Modified never repeats
+    Instant getUpdatedAt();
+
+    // The version is bumped in the same transaction as every change, unlike a timestamp it
+    // cannot match content committed after it was read. The id keeps tags apart when a
+    // lookup by title lands on another entity
+    default String getEtag() {
+        return getId() + "-" + getVersion();
+    }
+}
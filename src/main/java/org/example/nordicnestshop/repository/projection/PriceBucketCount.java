@@ -0,0 +1,4 @@
+package org.example.nordicnestshop.repository.projection;
+
+public record PriceBucketCount(Integer bucket, Long count) {
+}
@@ -0,0 +1,6 @@
+package org.example.nordicnestshop.repository.projection;
+
+import java.math.BigDecimal;
+
+public record PriceRange(BigDecimal min, BigDecimal max) {
+}
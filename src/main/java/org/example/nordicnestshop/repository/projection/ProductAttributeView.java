@@ -0,0 +1,9 @@
+package org.example.nordicnestshop.repository.projection;
+
+public interface ProductAttributeView {
+    Long getProductId();
+
+    String getKey();
+
+    String getValue();
+}
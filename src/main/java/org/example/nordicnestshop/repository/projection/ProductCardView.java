@@ -0,0 +1,10 @@
+package org.example.nordicnestshop.repository.projection;
+
+import java.math.BigDecimal;
+
+public record ProductCardView(Long id,
+                              String title,
+                              String article,
+                              BigDecimal price,
+                              String mainImage) {
+}
@@ -0,0 +1,7 @@
+package org.example.nordicnestshop.repository.projection;
+
+public interface ProductCategoryView {
+    Long getProductId();
+
+    Long getCategoryId();
+}
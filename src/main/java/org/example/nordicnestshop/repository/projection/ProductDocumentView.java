@@ -0,0 +1,15 @@
+package org.example.nordicnestshop.repository.projection;
+
+import java.math.BigDecimal;
+
+public interface ProductDocumentView {
+    Long getId();
+
+    String getTitle();
+
+    String getArticle();
+
+    String getDescription();
+
+    BigDecimal getPrice();
+}
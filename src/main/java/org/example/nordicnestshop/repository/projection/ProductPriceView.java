@@ -0,0 +1,9 @@
+package org.example.nordicnestshop.repository.projection;
+
+import java.math.BigDecimal;
+
+public interface ProductPriceView {
+    Long getId();
+
+    BigDecimal getPrice();
+}
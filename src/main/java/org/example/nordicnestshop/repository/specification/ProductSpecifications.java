@@ -0,0 +1,68 @@
+package org.example.nordicnestshop.repository.specification;
+
+import static org.example.nordicnestshop.config.PostgresFunctionContributor.ID_IN_ARRAY;
+import static org.example.nordicnestshop.config.PostgresFunctionContributor.ROW_GREATER_THAN;
+import static org.example.nordicnestshop.config.PostgresFunctionContributor.ROW_LESS_THAN;
+
+import jakarta.persistence.criteria.CriteriaQuery;
+import java.util.Collection;
+import org.example.nordicnestshop.model.product.Product;
+import org.example.nordicnestshop.repository.projection.ProductCardView;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+public final class ProductSpecifications {
+    private ProductSpecifications() {
+    }
+
+    public static Specification<Product> idIn(RoaringBitmap ids) {
+        return idIn(ids.stream().mapToObj(Long::valueOf).toArray(Long[]::new));
+    }
+
+    public static Specification<Product> idIn(Collection<Long> ids) {
+        return idIn(ids.toArray(Long[]::new));
+    }
+
+    private static Specification<Product> idIn(Long[] values) {
+        return (root, query, criteriaBuilder) -> {
+            if (values.length == 0) {
+                return criteriaBuilder.disjunction();
+            }
+            HibernateCriteriaBuilder hibernateCriteriaBuilder =
+                    (HibernateCriteriaBuilder) criteriaBuilder;
+            return criteriaBuilder.isTrue(criteriaBuilder.function(ID_IN_ARRAY, Boolean.class,
+                    root.get("id"), hibernateCriteriaBuilder.value(values)));
+        };
+    }
+
+    /**
+     * Whether the query loads the search listing, the only place a ranking order is applied.
+     */
+    public static boolean isListingQuery(CriteriaQuery<?> query) {
+        return Product.class.equals(query.getResultType())
+                || ProductCardView.class.equals(query.getResultType());
+    }
+
+    /**
+     * Products strictly after the (key, id) position in the given direction, where the key is
+     * the sort property value of the last product on the previous page.
+     */
+    public static Specification<Product> after(String property, Sort.Direction direction,
+                                               Object value, Long id) {
+        return (root, query, criteriaBuilder) -> {
+            if (property.equals("id")) {
+                return direction.isAscending()
+                        ? criteriaBuilder.greaterThan(root.get("id"), id)
+                        : criteriaBuilder.lessThan(root.get("id"), id);
+            }
+            HibernateCriteriaBuilder hibernateCriteriaBuilder =
+                    (HibernateCriteriaBuilder) criteriaBuilder;
+            return criteriaBuilder.isTrue(criteriaBuilder.function(
+                    direction.isAscending() ? ROW_GREATER_THAN : ROW_LESS_THAN, Boolean.class,
+                    root.get(property), root.get("id"),
+                    hibernateCriteriaBuilder.value(value), hibernateCriteriaBuilder.value(id)));
+        };
+    }
+}
@@ -6,7 +6,9 @@ import org.springframework.data.jpa.domain.Specification;
 public interface SpecificationProvider {
     String getName();
 
-    Specification<Product> getSpecification();
-
-    void parseValues(String value);
+    /**
+     * Parses the request value into a specification, providers are shared between requests and
+     * keep no state.
+     */
+    Specification<Product> getSpecification(String value);
 }
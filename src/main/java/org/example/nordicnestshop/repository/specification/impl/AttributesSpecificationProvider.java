@@ -6,28 +6,14 @@ import jakarta.persistence.criteria.Root;
 import jakarta.persistence.criteria.Subquery;
 import java.util.List;
 import java.util.Map;
-import lombok.Getter;
-import lombok.Setter;
-import org.apache.commons.lang3.NotImplementedException;
 import org.example.nordicnestshop.model.product.Attribute;
 import org.example.nordicnestshop.model.product.Product;
-import org.example.nordicnestshop.repository.specification.SpecificationProvider;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
-@Getter
-@Setter
 @Service
-public class AttributesSpecificationProvider implements SpecificationProvider {
-    private Map<String, List<String>> attributes;
-
-    @Override
-    public String getName() {
-        return "attributes";
-    }
-
-    @Override
-    public Specification<Product> getSpecification() {
+public class AttributesSpecificationProvider {
+    public Specification<Product> getSpecification(Map<String, List<String>> attributes) {
         return (root, query, criteriaBuilder) -> {
             if (attributes == null || attributes.isEmpty()) {
                 return criteriaBuilder.conjunction();
@@ -49,11 +35,6 @@ public class AttributesSpecificationProvider implements SpecificationProvider {
         };
     }
 
-    @Override
-    public void parseValues(String value) {
-        throw new NotImplementedException("Method parseValues() is not implemented.");
-    }
-
     private Predicate buildAttributePredicates(CriteriaBuilder criteriaBuilder,
                                                Root<Attribute> subRoot,
                                                Map<String, List<String>> attributes) {
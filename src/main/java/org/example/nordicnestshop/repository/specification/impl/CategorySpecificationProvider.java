@@ -4,11 +4,9 @@ import jakarta.persistence.criteria.Join;
 import jakarta.persistence.criteria.Root;
 import jakarta.persistence.criteria.Subquery;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
-import lombok.Getter;
-import lombok.Setter;
 import org.example.nordicnestshop.model.Category;
 import org.example.nordicnestshop.model.product.Product;
 import org.example.nordicnestshop.repository.CategoryRepository;
@@ -16,11 +14,8 @@ import org.example.nordicnestshop.repository.specification.SpecificationProvider
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
-@Getter
-@Setter
 @Service
 public class CategorySpecificationProvider implements SpecificationProvider {
-    private Map<Category.CategoryType, List<Long>> categoryTypeListMap;
     private final CategoryRepository categoryRepository;
 
     public CategorySpecificationProvider(CategoryRepository categoryRepository) {
@@ -33,9 +28,13 @@ public class CategorySpecificationProvider implements SpecificationProvider {
     }
 
     @Override
-    public Specification<Product> getSpecification() {
+    public Specification<Product> getSpecification(String value) {
+        return getSpecification(getCategoryGroups(value));
+    }
+
+    public Specification<Product> getSpecification(Collection<List<Long>> categoryGroups) {
         return (root, query, criteriaBuilder) ->
-                categoryTypeListMap.values().stream()
+                categoryGroups.stream()
                         .map(list -> {
                             Subquery<Long> subquery = query.subquery(Long.class);
                             Root<Product> subRoot = subquery.from(Product.class);
@@ -50,17 +49,22 @@ public class CategorySpecificationProvider implements SpecificationProvider {
                         .orElse(criteriaBuilder.conjunction());
     }
 
-    @Override
-    public void parseValues(String value) {
+    /**
+     * Groups the requested categories by type, a product has to match every group and any
+     * category within a group.
+     */
+    public List<List<Long>> getCategoryGroups(String value) {
         List<Long> categoryIds = Arrays.stream(value
                         .split(","))
                 .map(Long::parseLong)
                 .toList();
 
-        categoryTypeListMap = categoryRepository
+        return categoryRepository
                 .getCategoriesByIdIn(categoryIds)
                 .stream()
                 .collect(Collectors.groupingBy(Category::getType,
-                        Collectors.mapping(Category::getId, Collectors.toList())));
+                        Collectors.mapping(Category::getId, Collectors.toUnmodifiableList())))
+                .values().stream()
+                .toList();
     }
 }
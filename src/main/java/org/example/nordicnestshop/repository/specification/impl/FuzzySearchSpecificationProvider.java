@@ -0,0 +1,47 @@
+package org.example.nordicnestshop.repository.specification.impl;
+
+import static org.example.nordicnestshop.config.PostgresFunctionContributor.TRIGRAM_WORD_MATCH;
+
+import jakarta.persistence.criteria.Expression;
+import org.example.nordicnestshop.model.product.Product;
+import org.example.nordicnestshop.repository.specification.ProductSpecifications;
+import org.example.nordicnestshop.repository.specification.SpecificationProvider;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+
+@Service
+public class FuzzySearchSpecificationProvider implements SpecificationProvider {
+    @Override
+    public String getName() {
+        return "fuzzySearchText";
+    }
+
+    @Override
+    public Specification<Product> getSpecification(String text) {
+        return (root, query, criteriaBuilder) -> {
+            if (text == null || text.trim().isEmpty()) {
+                return criteriaBuilder.conjunction();
+            }
+
+            Expression<String> searchQuery = ((HibernateCriteriaBuilder) criteriaBuilder)
+                    .value(text.trim().toLowerCase());
+            if (ProductSpecifications.isListingQuery(query) && query.getOrderList().isEmpty()) {
+                query.orderBy(
+                        criteriaBuilder.desc(criteriaBuilder.function("greatest", Float.class,
+                                criteriaBuilder.function("word_similarity", Float.class,
+                                        searchQuery, root.get("title")),
+                                criteriaBuilder.function("word_similarity", Float.class,
+                                        searchQuery, root.get("article")))),
+                        criteriaBuilder.asc(root.get("id")));
+            }
+            // Matches against pg_trgm.word_similarity_threshold, which keeps the trigram
+            // indexes usable
+            return criteriaBuilder.or(
+                    criteriaBuilder.isTrue(criteriaBuilder.function(TRIGRAM_WORD_MATCH,
+                            Boolean.class, searchQuery, root.get("title"))),
+                    criteriaBuilder.isTrue(criteriaBuilder.function(TRIGRAM_WORD_MATCH,
+                            Boolean.class, searchQuery, root.get("article"))));
+        };
+    }
+}
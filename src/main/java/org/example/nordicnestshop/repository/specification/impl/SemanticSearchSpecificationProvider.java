@@ -1,70 +1,42 @@
 package org.example.nordicnestshop.repository.specification.impl;
 
-import jakarta.persistence.criteria.Predicate;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import lombok.Getter;
-import lombok.Setter;
+import static org.example.nordicnestshop.config.PostgresFunctionContributor.TEXT_SEARCH_MATCH;
+import static org.example.nordicnestshop.config.PostgresFunctionContributor.TEXT_SEARCH_RANK;
+
+import jakarta.persistence.criteria.Expression;
 import org.example.nordicnestshop.model.product.Product;
+import org.example.nordicnestshop.repository.specification.ProductSpecifications;
 import org.example.nordicnestshop.repository.specification.SpecificationProvider;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
-@Getter
-@Setter
 @Service
 public class SemanticSearchSpecificationProvider implements SpecificationProvider {
-    private String searchText;
-
     @Override
     public String getName() {
         return "searchText";
     }
 
     @Override
-    public Specification<Product> getSpecification() {
+    public Specification<Product> getSpecification(String text) {
         return (root, query, criteriaBuilder) -> {
-            if (searchText == null || searchText.trim().isEmpty()) {
+            if (text == null || text.trim().isEmpty()) {
                 return criteriaBuilder.conjunction();
             }
 
-            String[] textParts = searchText.toLowerCase().split("[,.\\s]+");
-            List<String> wordPatterns = new ArrayList<>();
-            List<Predicate> predicates = new ArrayList<>();
-
-            wordPatterns.add("%" + searchText.toLowerCase() + "%");
-            if (textParts.length > 1) {
-                wordPatterns = Arrays.stream(textParts).map(s -> "%" + s + "%").toList();
+            Expression<String> searchVector = root.get("searchVector");
+            Expression<String> searchQuery = ((HibernateCriteriaBuilder) criteriaBuilder)
+                    .value(text.trim());
+            // Count and aggregate queries share this specification, only entity queries rank
+            if (ProductSpecifications.isListingQuery(query) && query.getOrderList().isEmpty()) {
+                query.orderBy(
+                        criteriaBuilder.desc(criteriaBuilder.function(TEXT_SEARCH_RANK,
+                                Float.class, searchVector, searchQuery)),
+                        criteriaBuilder.asc(root.get("id")));
             }
-
-            for (String entity : wordPatterns) {
-                predicates.add(criteriaBuilder.like(
-                        criteriaBuilder.lower(root.get("title")),
-                        entity
-                ));
-
-                predicates.add(criteriaBuilder.like(
-                        criteriaBuilder.lower(root.get("description")),
-                        entity
-                ));
-
-                predicates.add(criteriaBuilder.like(
-                        criteriaBuilder.lower(root.get("article")),
-                        entity
-                ));
-
-                predicates.add(criteriaBuilder.like(
-                        criteriaBuilder.lower(root.join("attributes").get("value")),
-                        entity
-                ));
-            }
-            return criteriaBuilder.or(predicates.toArray(new Predicate[0]));
+            return criteriaBuilder.isTrue(criteriaBuilder.function(TEXT_SEARCH_MATCH,
+                    Boolean.class, searchVector, searchQuery));
         };
     }
-
-    @Override
-    public void parseValues(String value) {
-        searchText = value;
-    }
 }
@@ -1,10 +1,12 @@
 package org.example.nordicnestshop.service;
 
-import java.util.List;
 import java.util.Map;
 import org.example.nordicnestshop.model.product.Product;
-import org.springframework.data.domain.Page;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.data.jpa.domain.Specification;
 
 public interface AttributeService {
-    Map<String, List<String>> getAvailableAttributes(Page<Product> products);
+    Map<String, Map<String, Long>> getAttributeFacets(Specification<Product> specification);
+
+    Map<String, Map<String, Long>> getAttributeFacets(RoaringBitmap productIds);
 }
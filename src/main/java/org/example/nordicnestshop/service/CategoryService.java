@@ -4,6 +4,7 @@ import org.example.nordicnestshop.dto.category.CategoryDto;
 import org.example.nordicnestshop.dto.category.CreateCategoryDto;
 import org.example.nordicnestshop.dto.category.UpdateCategoryDto;
 import org.example.nordicnestshop.model.Category;
+import org.example.nordicnestshop.repository.projection.EntityVersionView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -21,4 +22,8 @@ public interface CategoryService {
     CategoryDto getByTitle(String title);
 
     CategoryDto getById(Long id);
+
+    EntityVersionView getVersionById(Long id);
+
+    EntityVersionView getVersionByTitle(String title);
 }
@@ -0,0 +1,17 @@
+package org.example.nordicnestshop.service;
+
+import java.math.BigDecimal;
+import java.util.NavigableMap;
+import org.example.nordicnestshop.dto.product.PriceStatisticsDto;
+import org.example.nordicnestshop.model.product.Product;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.data.jpa.domain.Specification;
+
+public interface PriceStatisticsService {
+    PriceStatisticsDto getPriceStatistics(Specification<Product> specification, int buckets);
+
+    PriceStatisticsDto getPriceStatistics(RoaringBitmap productIds, int buckets);
+
+    PriceStatisticsDto getPriceStatistics(NavigableMap<BigDecimal, Long> priceCounts,
+                                          int buckets);
+}
@@ -5,6 +5,7 @@ import org.example.nordicnestshop.dto.product.CreateProductDto;
 import org.example.nordicnestshop.dto.product.ProductFullDto;
 import org.example.nordicnestshop.dto.product.ProductSearchResponseDto;
 import org.example.nordicnestshop.dto.product.UpdateProductDto;
+import org.example.nordicnestshop.repository.projection.EntityVersionView;
 import org.springframework.data.domain.Pageable;
 
 public interface ProductService {
@@ -14,6 +15,10 @@ public interface ProductService {
 
     ProductFullDto getById(Long id);
 
+    byte[] getJsonById(Long id, long version);
+
+    EntityVersionView getVersion(Long id);
+
     ProductSearchResponseDto getAllByCategoryIdsAndAttributes(Map<String, String> attributes,
                                                               Pageable pageable);
 
@@ -0,0 +1,59 @@
+package org.example.nordicnestshop.service.catalog;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.example.nordicnestshop.repository.CatalogChangeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * Revalidates catalog listings against the catalog generation, which every product and
+ * category write moves. Between writes the same query always gets the same tag, so edge
+ * caches can keep serving it.
+ */
+@Component
+public class CatalogRevalidation {
+    private final CatalogChangeRepository catalogChangeRepository;
+    private final String cacheControl;
+
+    public CatalogRevalidation(CatalogChangeRepository catalogChangeRepository,
+                               @Value("${catalog.http-cache.max-age:PT30S}") Duration maxAge,
+                               @Value("${catalog.http-cache.stale-while-revalidate:PT5M}")
+                               Duration staleWhileRevalidate) {
+        this.catalogChangeRepository = catalogChangeRepository;
+        this.cacheControl = CacheControl.maxAge(maxAge)
+                .cachePublic()
+                .staleWhileRevalidate(staleWhileRevalidate)
+                .getHeaderValue();
+    }
+
+    /**
+     * Answers a catalog listing, or a 304 when the client copy is still current. The caching
+     * headers are only set once the listing was answered, so errors stay uncacheable.
+     */
+    public <T> T revalidate(ServletWebRequest request, Supplier<T> listing) {
+        String query = request.getRequest().getRequestURI() + "?"
+                + normalize(request.getParameterMap());
+        String etag = catalogChangeRepository.getCurrentGeneration() + "-"
+                + DigestUtils.md5DigestAsHex(query.getBytes(StandardCharsets.UTF_8));
+        T body = request.checkNotModified(etag) ? null : listing.get();
+        if (request.getResponse() != null) {
+            request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        }
+        return body;
+    }
+
+    private String normalize(Map<String, String[]> params) {
+        return new TreeMap<>(params).entrySet().stream()
+                .map(entry -> entry.getKey() + "=" + String.join(",", entry.getValue()))
+                .collect(Collectors.joining("&"));
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.nordicnestshop.service.concurrency;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Caps the number of calls in flight to one downstream. Virtual threads make waiting cheap,
+ * so the limit is what protects the downstream, not the size of a thread pool.
+ */
+public class ConcurrencyLimiter {
+    private final String name;
+    private final Semaphore permits;
+
+    public ConcurrencyLimiter(String name, int maxConcurrency, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.permits = new Semaphore(maxConcurrency, true);
+        Gauge.builder("downstream.permits.available", permits, Semaphore::availablePermits)
+                .tag("downstream", name)
+                .register(meterRegistry);
+        Gauge.builder("downstream.permits.waiting", permits, Semaphore::getQueueLength)
+                .tag("downstream", name)
+                .register(meterRegistry);
+    }
+
+    public <T> T call(Supplier<T> action) {
+        acquire();
+        try {
+            return action.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    // The permit is held until the returned future completes, not until the call returns
+    public <T> CompletableFuture<T> callAsync(Supplier<CompletableFuture<T>> action) {
+        acquire();
+        CompletableFuture<T> future;
+        try {
+            future = action.get();
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        return future.whenComplete((result, error) -> permits.release());
+    }
+
+    private void acquire() {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + name, e);
+        }
+    }
+}
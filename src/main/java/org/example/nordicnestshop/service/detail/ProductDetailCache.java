@@ -0,0 +1,65 @@
+package org.example.nordicnestshop.service.detail;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.function.Supplier;
+import org.example.nordicnestshop.event.CategoryChangedEvent;
+import org.example.nordicnestshop.event.ProductChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Product detail documents as ready to write bytes, weighed by their size. An entry is only
+ * served for the product version it was built at, so changes made outside the application
+ * are picked up too. Change events just free the memory early.
+ */
+@Component
+public class ProductDetailCache {
+    private final Cache<Long, VersionedDocument> documents;
+    private final boolean enabled;
+
+    public ProductDetailCache(MeterRegistry meterRegistry,
+                              @Value("${product.detail-cache.enabled:true}") boolean enabled,
+                              @Value("${product.detail-cache.ttl:PT10M}") Duration ttl,
+                              @Value("${product.detail-cache.max-bytes:16777216}")
+                              long maxBytes) {
+        this.enabled = enabled;
+        this.documents = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumWeight(maxBytes)
+                .weigher((Long id, VersionedDocument document) -> document.json().length)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, documents, "productDetail");
+    }
+
+    public byte[] get(Long productId, long version, Supplier<byte[]> serializer) {
+        if (!enabled) {
+            return serializer.get();
+        }
+        // The document is read after the version, so it is never older than its label
+        VersionedDocument document = documents.getIfPresent(productId);
+        if (document == null || document.version() != version) {
+            document = new VersionedDocument(version, serializer.get());
+            documents.put(productId, document);
+        }
+        return document.json();
+    }
+
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        documents.invalidate(event.productId());
+    }
+
+    @TransactionalEventListener
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        documents.invalidateAll();
+    }
+
+    private record VersionedDocument(long version, byte[] json) {
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.nordicnestshop.service.image;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.example.nordicnestshop.event.ImagesReleasedEvent;
+import org.example.nordicnestshop.model.ImageDeletion;
+import org.example.nordicnestshop.repository.ImageDeletionRepository;
+import org.example.nordicnestshop.repository.ImageObjectRepository;
+import org.example.nordicnestshop.service.storage.StorageService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+/**
+ * Drains the image deletion outbox. Entries are claimed under a lease, so a worker that dies
+ * mid batch only delays its entries, and failed deletes are retried with exponential backoff.
+ */
+@Component
+@Log4j2
+@RequiredArgsConstructor
+public class ImageDeletionWorker {
+    private static final int MAX_ERROR_LENGTH = 1024;
+    private static final int MAX_BACKOFF_SHIFT = 20;
+
+    private final ImageDeletionRepository imageDeletionRepository;
+    private final ImageObjectRepository imageObjectRepository;
+    private final StorageService storageService;
+    private final ExecutorService blockingIoExecutor;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${image.deletion.batch-size:100}")
+    private int batchSize;
+
+    @Value("${image.deletion.lease:PT5M}")
+    private Duration lease;
+
+    @Value("${image.deletion.initial-backoff:PT10S}")
+    private Duration initialBackoff;
+
+    @Value("${image.deletion.max-backoff:PT1H}")
+    private Duration maxBackoff;
+
+    // Starts right after the releasing transaction commits instead of waiting for the next poll
+    @TransactionalEventListener
+    public void onImagesReleased(ImagesReleasedEvent event) {
+        blockingIoExecutor.execute(this::drain);
+    }
+
+    @Scheduled(fixedDelayString = "${image.deletion.poll-interval:PT30S}")
+    public void drain() {
+        List<ImageDeletion> batch;
+        do {
+            batch = imageDeletionRepository.claimDue(Instant.now().plus(lease), batchSize);
+            if (!batch.isEmpty()) {
+                process(batch);
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    // Objects are deleted while their rows are claimed, an upload of the same content waits and
+    // then stores it again, a reference committed before the claim keeps the object
+    private void process(List<ImageDeletion> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            String[] urls = batch.stream()
+                    .map(ImageDeletion::getUrl)
+                    .distinct()
+                    .toArray(String[]::new);
+            Set<String> referenced = new HashSet<>(imageObjectRepository.claimAllByUrlIn(urls));
+
+            List<ImageDeletion> pending = batch.stream()
+                    .filter(deletion -> !referenced.contains(deletion.getUrl()))
+                    .toList();
+            Map<String, String> failures = deleteFiles(pending);
+            imageObjectRepository.deleteUnreferencedByUrlIn(Arrays.asList(urls));
+
+            List<Long> completed = new ArrayList<>();
+            for (ImageDeletion deletion : batch) {
+                String failure = failures.get(deletion.getUrl());
+                if (failure == null) {
+                    completed.add(deletion.getId());
+                } else {
+                    reschedule(deletion, failure);
+                }
+            }
+            imageDeletionRepository.deleteAllByIdInBatch(completed);
+        });
+    }
+
+    private Map<String, String> deleteFiles(List<ImageDeletion> deletions) {
+        if (deletions.isEmpty()) {
+            return Map.of();
+        }
+        Set<String> urls = deletions.stream()
+                .map(ImageDeletion::getUrl)
+                .collect(Collectors.toSet());
+        try {
+            return storageService.deleteFiles(urls).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return urls.stream().collect(Collectors.toMap(Function.identity(),
+                    url -> String.valueOf(cause.getMessage())));
+        }
+    }
+
+    private void reschedule(ImageDeletion deletion, String error) {
+        Duration backoff = initialBackoff.multipliedBy(
+                1L << Math.min(deletion.getAttempts(), MAX_BACKOFF_SHIFT));
+        if (backoff.compareTo(maxBackoff) > 0) {
+            backoff = maxBackoff;
+        }
+        log.warn("Deletion of {} failed {} time(s), retrying in {}", deletion.getUrl(),
+                deletion.getAttempts() + 1, backoff);
+        imageDeletionRepository.reschedule(deletion.getId(), Instant.now().plus(backoff),
+                StringUtils.truncate(error, MAX_ERROR_LENGTH));
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.nordicnestshop.service.image;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.example.nordicnestshop.model.ImageDeletion;
+import org.example.nordicnestshop.repository.ImageDeletionRepository;
+import org.example.nordicnestshop.repository.ImageObjectRepository;
+import org.example.nordicnestshop.service.storage.ObjectSummary;
+import org.example.nordicnestshop.service.storage.StorageService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Finds stored objects nothing points at, e.g. uploads of a transaction that rolled back, and
+ * queues them on the deletion outbox. The bucket is compared page by page against image_objects
+ * by key and each page's orphans are queued before the next page is listed, objects younger than
+ * the grace period are left alone as their transaction may still commit.
+ */
+@Component
+@Log4j2
+@RequiredArgsConstructor
+public class ImageGarbageCollector {
+    private final StorageService storageService;
+    private final ImageObjectRepository imageObjectRepository;
+    private final ImageDeletionRepository imageDeletionRepository;
+    private final ImageDeletionWorker imageDeletionWorker;
+
+    @Value("${image.gc.enabled:true}")
+    private boolean enabled;
+
+    @Value("${image.gc.page-size:1000}")
+    private int pageSize;
+
+    @Value("${image.gc.grace-period:P1D}")
+    private Duration gracePeriod;
+
+    @Value("${image.gc.max-deletions-per-sweep:100000}")
+    private long maxDeletionsPerSweep;
+
+    @Scheduled(fixedDelayString = "${image.gc.interval:P1D}",
+            initialDelayString = "${image.gc.initial-delay:PT1H}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        AtomicLong scanned = new AtomicLong();
+        AtomicLong orphaned = new AtomicLong();
+        try {
+            storageService.forEachFilePage(pageSize, page -> {
+                scanned.addAndGet(page.size());
+                orphaned.addAndGet(queueOrphans(page, cutoff,
+                        maxDeletionsPerSweep - orphaned.get()));
+                return orphaned.get() < maxDeletionsPerSweep;
+            });
+        } catch (RuntimeException e) {
+            // Orphans found so far stay queued, the next sweep covers the rest
+            log.error("Image sweep failed after {} objects: {}", scanned, e.getMessage(), e);
+        }
+        if (orphaned.get() >= maxDeletionsPerSweep) {
+            // Bounds the damage of keys that no longer match, the next sweep continues
+            log.warn("Image sweep stopped at the limit of {} deletions", maxDeletionsPerSweep);
+        }
+        log.info("Image sweep scanned {} objects, queued {} orphans for deletion",
+                scanned, orphaned);
+        if (orphaned.get() > 0) {
+            imageDeletionWorker.drain();
+        }
+    }
+
+    private int queueOrphans(List<ObjectSummary> page, Instant cutoff, long limit) {
+        Set<String> candidates = page.stream()
+                .filter(object -> object.lastModified().isBefore(cutoff))
+                .map(ObjectSummary::key)
+                .collect(Collectors.toSet());
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+
+        // Referenced objects and objects already waiting for deletion are skipped
+        Set<String> known = new HashSet<>(imageDeletionRepository.findKeysByKeyIn(candidates));
+        known.addAll(imageObjectRepository.findReferencedKeysByKeyIn(candidates));
+
+        List<ImageDeletion> orphans = candidates.stream()
+                .filter(key -> !known.contains(key))
+                .limit(limit)
+                .map(key -> new ImageDeletion(storageService.getUrl(key)))
+                .toList();
+        imageDeletionRepository.saveAll(orphans);
+        return orphans.size();
+    }
+}
@@ -0,0 +1,147 @@
+package org.example.nordicnestshop.service.image;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import org.example.nordicnestshop.exception.IncorrectArgumentException;
+import org.example.nordicnestshop.service.concurrency.ConcurrencyLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decodes an upload and encodes it as WebP at the widths of the requested variants. Only the
+ * pixels are re-encoded, so EXIF and other metadata of the original never reach the store.
+ */
+@Component
+public class ImageProcessor {
+    public static final String CONTENT_TYPE = "image/webp";
+    private static final String LOSSY = "Lossy";
+
+    private final ConcurrencyLimiter limiter;
+    private final float quality;
+    private final long maxPixels;
+
+    public ImageProcessor(MeterRegistry meterRegistry,
+                          @Value("${image.processing.max-concurrency:4}") int maxConcurrency,
+                          @Value("${image.processing.quality:0.8}") float quality,
+                          @Value("${image.processing.max-pixels:50000000}") long maxPixels) {
+        // Decoded images take width * height * 4 bytes of heap each
+        this.limiter = new ConcurrencyLimiter("image-processing", maxConcurrency, meterRegistry);
+        this.quality = quality;
+        this.maxPixels = maxPixels;
+    }
+
+    public Map<ImageVariant, byte[]> toWebp(InputStreamSource source, String name,
+                                            Collection<ImageVariant> variants) {
+        return limiter.call(() -> {
+            List<ImageVariant> widestFirst = variants.stream()
+                    .sorted(Comparator.comparingInt(ImageVariant::getWidth).reversed())
+                    .toList();
+            Map<ImageVariant, byte[]> encoded = new EnumMap<>(ImageVariant.class);
+            // Each variant is scaled from the previous one, not from the full size original
+            BufferedImage image = decode(source, name);
+            for (ImageVariant variant : widestFirst) {
+                image = scaleToWidth(image, variant.getWidth());
+                encoded.put(variant, encode(image));
+            }
+            return encoded;
+        });
+    }
+
+    private BufferedImage decode(InputStreamSource source, String name) {
+        try (InputStream inputStream = source.getInputStream();
+                ImageInputStream input = new MemoryCacheImageInputStream(inputStream)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IncorrectArgumentException("Unsupported image format: " + name);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxPixels) {
+                    throw new IncorrectArgumentException("Image resolution is too large: " + name);
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            throw new IncorrectArgumentException("Can't read image: " + name, e);
+        }
+    }
+
+    // Halving steps keep large reductions from aliasing, the image is never upscaled
+    private BufferedImage scaleToWidth(BufferedImage image, int width) {
+        int type = image.getColorModel().hasAlpha()
+                ? BufferedImage.TYPE_INT_ARGB
+                : BufferedImage.TYPE_INT_RGB;
+        int targetWidth = Math.min(width, image.getWidth());
+        BufferedImage scaled = image;
+        do {
+            int nextWidth = Math.max(targetWidth, scaled.getWidth() / 2);
+            int nextHeight = Math.max(1, (int) Math.round(
+                    (double) image.getHeight() * nextWidth / image.getWidth()));
+            scaled = draw(scaled, nextWidth, nextHeight, type);
+        } while (scaled.getWidth() > targetWidth);
+        return scaled;
+    }
+
+    private BufferedImage draw(BufferedImage source, int width, int height, int type) {
+        BufferedImage target = new BufferedImage(width, height, type);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                    RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING,
+                    RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encode(BufferedImage image) {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByMIMEType(CONTENT_TYPE);
+        if (!writers.hasNext()) {
+            throw new IllegalStateException("No WebP encoder is available");
+        }
+        ImageWriter writer = writers.next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionType(LOSSY);
+        param.setCompressionQuality(quality);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream output = new MemoryCacheImageOutputStream(bytes)) {
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode WebP image", e);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.nordicnestshop.service.image;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.example.nordicnestshop.dto.image.CreateImageUploadSessionDto;
+import org.example.nordicnestshop.dto.image.ImageUploadSessionDto;
+import org.springframework.web.multipart.MultipartFile;
+
+public interface ImageService {
+    /**
+     * Stores the image and returns its url. Must run in the transaction that references the
+     * url, the stored object is locked against deletion until it ends.
+     */
+    String uploadImage(MultipartFile file);
+
+    CompletableFuture<List<StoredImage>> uploadImages(List<MultipartFile> files);
+
+    /**
+     * Signs urls the client uploads originals to directly. The returned keys are passed to
+     * {@link #importImage(String)} or {@link #importImages(List)} afterwards.
+     */
+    ImageUploadSessionDto createUploadSession(CreateImageUploadSessionDto sessionDto);
+
+    /**
+     * Stores the variants of a directly uploaded original like {@link #uploadImage}. The original
+     * is still downloaded and transcoded here, it is deleted once the calling transaction commits.
+     */
+    String importImage(String key);
+
+    CompletableFuture<List<StoredImage>> importImages(List<String> keys);
+
+    /**
+     * Queues the stored objects behind the given urls that are no longer referenced for deletion
+     * once the current transaction commits. Must run after the referencing rows are flushed.
+     */
+    void releaseImages(Collection<String> urls);
+}
@@ -0,0 +1,313 @@
+package org.example.nordicnestshop.service.image;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.example.nordicnestshop.dto.image.CreateImageUploadDto;
+import org.example.nordicnestshop.dto.image.CreateImageUploadSessionDto;
+import org.example.nordicnestshop.dto.image.ImageUploadDto;
+import org.example.nordicnestshop.dto.image.ImageUploadSessionDto;
+import org.example.nordicnestshop.event.ImagesReleasedEvent;
+import org.example.nordicnestshop.exception.IncorrectArgumentException;
+import org.example.nordicnestshop.model.ImageDeletion;
+import org.example.nordicnestshop.repository.ImageDeletionRepository;
+import org.example.nordicnestshop.repository.ImageObjectRepository;
+import org.example.nordicnestshop.service.storage.PresignedUpload;
+import org.example.nordicnestshop.service.storage.StorageService;
+import org.example.nordicnestshop.service.storage.StoredObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class ImageServiceImpl implements ImageService {
+    private static final List<String> ALLOWED_EXTENSIONS =
+            Arrays.asList("jpg", "jpeg", "png", "webp");
+    private static final List<String> ALLOWED_CONTENT_TYPES =
+            Arrays.asList("image/jpeg", "image/png", "image/webp");
+    private static final String EXTENSION = ".webp";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final String UPLOAD_PREFIX = "uploads/";
+    private static final Pattern UPLOAD_KEY_PATTERN = Pattern.compile(
+            Pattern.quote(UPLOAD_PREFIX) + "[0-9a-f]{8}(-[0-9a-f]{4}){3}-[0-9a-f]{12}");
+
+    private final ImageProcessor imageProcessor;
+    private final StorageService storageService;
+    private final ExecutorService blockingIoExecutor;
+    private final ImageObjectRepository imageObjectRepository;
+    private final ImageDeletionRepository imageDeletionRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${image.upload.max-size:10MB}")
+    private DataSize maxUploadSize;
+
+    @Value("${image.upload.url-ttl:PT15M}")
+    private Duration uploadUrlTtl;
+
+    @Override
+    public String uploadImage(MultipartFile file) {
+        validate(file);
+        return join(upload(List.of(new Upload(file, file.getOriginalFilename())),
+                EnumSet.of(ImageVariant.DETAIL)))
+                .getFirst().get(ImageVariant.DETAIL);
+    }
+
+    @Override
+    public CompletableFuture<List<StoredImage>> uploadImages(List<MultipartFile> files) {
+        if (files == null || files.isEmpty()) {
+            throw new IncorrectArgumentException("No files provided for upload.");
+        }
+        // Nothing goes up when one of the files would be rejected
+        files.forEach(this::validate);
+
+        return upload(files.stream()
+                        .map(file -> new Upload(file, file.getOriginalFilename()))
+                        .toList(), EnumSet.allOf(ImageVariant.class))
+                .thenApply(this::toStoredImages);
+    }
+
+    @Override
+    public ImageUploadSessionDto createUploadSession(CreateImageUploadSessionDto sessionDto) {
+        sessionDto.getFiles().forEach(file -> validate(file.getContentType(), file.getSize()));
+
+        ImageUploadSessionDto session = new ImageUploadSessionDto();
+        session.setUploads(sessionDto.getFiles().stream()
+                .map(this::presign)
+                .toList());
+        return session;
+    }
+
+    @Override
+    public String importImage(String key) {
+        validateKey(key);
+        return join(importUploads(List.of(key), EnumSet.of(ImageVariant.DETAIL)))
+                .getFirst().get(ImageVariant.DETAIL);
+    }
+
+    @Override
+    public CompletableFuture<List<StoredImage>> importImages(List<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            throw new IncorrectArgumentException("No image keys provided for import.");
+        }
+        keys.forEach(this::validateKey);
+
+        return importUploads(keys, EnumSet.allOf(ImageVariant.class))
+                .thenApply(this::toStoredImages);
+    }
+
+    @Override
+    public void releaseImages(Collection<String> urls) {
+        List<String> candidates = urls.stream().filter(Objects::nonNull).distinct().toList();
+        if (candidates.isEmpty()) {
+            return;
+        }
+        List<String> released = imageObjectRepository.deleteUnreferencedByUrlIn(candidates);
+        if (!released.isEmpty()) {
+            queueDeletion(released);
+        }
+    }
+
+    // Recorded in this transaction, objects are only deleted if it commits
+    private void queueDeletion(List<String> urls) {
+        imageDeletionRepository.saveAll(urls.stream().map(ImageDeletion::new).toList());
+        eventPublisher.publishEvent(new ImagesReleasedEvent(urls));
+    }
+
+    private void validate(MultipartFile file) {
+        String originalFilename = Objects.requireNonNull(file.getOriginalFilename());
+        String fileExtension = originalFilename.substring(
+                originalFilename.lastIndexOf(".") + 1).toLowerCase();
+
+        if (!ALLOWED_EXTENSIONS.contains(fileExtension)) {
+            log.warn("File type not allowed: {}", fileExtension);
+            throw new IncorrectArgumentException("Invalid file type."
+                    + " Only JPG, JPEG, PNG, and WEBP are allowed.");
+        }
+    }
+
+    private void validate(String contentType, long size) {
+        if (!ALLOWED_CONTENT_TYPES.contains(contentType)) {
+            log.warn("Content type not allowed: {}", contentType);
+            throw new IncorrectArgumentException("Invalid content type."
+                    + " Only JPEG, PNG, and WEBP are allowed.");
+        }
+        if (size > maxUploadSize.toBytes()) {
+            throw new IncorrectArgumentException("Image is larger than " + maxUploadSize + ".");
+        }
+    }
+
+    // Only keys handed out by createUploadSession are accepted, never stored images
+    private void validateKey(String key) {
+        if (key == null || !UPLOAD_KEY_PATTERN.matcher(key).matches()) {
+            throw new IncorrectArgumentException("Invalid image key: " + key);
+        }
+    }
+
+    private ImageUploadDto presign(CreateImageUploadDto file) {
+        String key = UPLOAD_PREFIX + UUID.randomUUID();
+        PresignedUpload presignedUpload = storageService.presignUpload(key, file.getContentType(),
+                file.getSize(), uploadUrlTtl);
+
+        ImageUploadDto upload = new ImageUploadDto();
+        upload.setKey(key);
+        upload.setUploadUrl(presignedUpload.url());
+        upload.setHeaders(presignedUpload.headers());
+        upload.setExpiresAt(presignedUpload.expiresAt());
+        return upload;
+    }
+
+    // The originals go through the same pipeline as multipart uploads. Variants are still
+    // transcoded here, so each original is downloaded into memory once.
+    private CompletableFuture<List<Map<ImageVariant, String>>> importUploads(
+            List<String> keys, Set<ImageVariant> variants) {
+        List<Upload> uploads = join(allOf(keys.stream()
+                .map(key -> storageService.describe(key)
+                        .thenCompose(object -> {
+                            StoredObject storedObject = object.orElseThrow(() ->
+                                    new IncorrectArgumentException("Upload not found: " + key));
+                            validate(storedObject.contentType(), storedObject.size());
+                            return storageService.download(key);
+                        })
+                        .thenApply(content -> new Upload(new ByteArrayResource(content), key)))
+                .toList()));
+        CompletableFuture<List<Map<ImageVariant, String>>> stored = upload(uploads, variants);
+        // Only removed once the importing transaction commits, a rolled back import can be
+        // retried with the same keys
+        queueDeletion(keys.stream().map(storageService::getUrl).toList());
+        return stored;
+    }
+
+    // Objects are keyed by the SHA-256 of the original upload, a repeated image is neither
+    // transcoded nor stored again. The objects are claimed in the caller's transaction first, so
+    // an object seen in storage cannot be deleted before the new references commit.
+    private CompletableFuture<List<Map<ImageVariant, String>>> upload(List<Upload> uploads,
+                                                                      Set<ImageVariant> variants) {
+        List<String> digests = join(allOf(uploads.stream()
+                .map(upload -> CompletableFuture.supplyAsync(() -> digest(upload.source()),
+                        blockingIoExecutor))
+                .toList()));
+        imageObjectRepository.claimAllByUrlIn(digests.stream()
+                .flatMap(digest -> variants.stream()
+                        .map(variant -> storageService.getUrl(key(digest, variant))))
+                .toArray(String[]::new));
+
+        return allOf(IntStream.range(0, uploads.size())
+                .mapToObj(i -> store(uploads.get(i), digests.get(i), variants))
+                .toList());
+    }
+
+    private CompletableFuture<Map<ImageVariant, String>> store(Upload upload, String digest,
+                                                               Set<ImageVariant> variants) {
+        return findMissing(digest, variants)
+                .thenComposeAsync(missing -> write(upload.source(), upload.name(), digest,
+                        missing), blockingIoExecutor)
+                .thenApply(ignored -> {
+                    Map<ImageVariant, String> urls = new EnumMap<>(ImageVariant.class);
+                    variants.forEach(variant ->
+                            urls.put(variant, storageService.getUrl(key(digest, variant))));
+                    return urls;
+                });
+    }
+
+    private CompletableFuture<Set<ImageVariant>> findMissing(String digest,
+                                                             Set<ImageVariant> variants) {
+        Map<ImageVariant, CompletableFuture<Boolean>> checks = new EnumMap<>(ImageVariant.class);
+        variants.forEach(variant ->
+                checks.put(variant, storageService.exists(key(digest, variant))));
+        return CompletableFuture.allOf(checks.values().toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    Set<ImageVariant> missing = EnumSet.noneOf(ImageVariant.class);
+                    checks.forEach((variant, exists) -> {
+                        if (!exists.join()) {
+                            missing.add(variant);
+                        }
+                    });
+                    return missing;
+                });
+    }
+
+    private CompletableFuture<Void> write(InputStreamSource source, String name, String digest,
+                                          Set<ImageVariant> missing) {
+        if (missing.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Map<ImageVariant, byte[]> encoded = imageProcessor.toWebp(source, name, missing);
+        return CompletableFuture.allOf(encoded.entrySet().stream()
+                .map(variant -> storageService.uploadFile(key(digest, variant.getKey()),
+                        variant.getValue(), ImageProcessor.CONTENT_TYPE))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    private String digest(InputStreamSource source) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream inputStream = new DigestInputStream(source.getInputStream(), digest)) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read upload", e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private String key(String digest, ImageVariant variant) {
+        return digest + variant.getKeySuffix() + EXTENSION;
+    }
+
+    private List<StoredImage> toStoredImages(List<Map<ImageVariant, String>> images) {
+        return images.stream()
+                .map(urls -> new StoredImage(urls.get(ImageVariant.DETAIL),
+                        urls.get(ImageVariant.CARD), urls.get(ImageVariant.THUMBNAIL)))
+                .toList();
+    }
+
+    private <T> CompletableFuture<List<T>> allOf(List<CompletableFuture<T>> futures) {
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> futures.stream().map(CompletableFuture::join).toList());
+    }
+
+    private <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private record Upload(InputStreamSource source, String name) {
+    }
+}
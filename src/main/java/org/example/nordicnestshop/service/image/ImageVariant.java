@@ -0,0 +1,15 @@
+package org.example.nordicnestshop.service.image;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum ImageVariant {
+    DETAIL(1600, ""),
+    CARD(480, "-card"),
+    THUMBNAIL(160, "-thumbnail");
+
+    private final int width;
+    private final String keySuffix;
+}
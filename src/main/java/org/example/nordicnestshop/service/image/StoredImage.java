@@ -0,0 +1,4 @@
+package org.example.nordicnestshop.service.image;
+
+public record StoredImage(String imageUrl, String cardUrl, String thumbnailUrl) {
+}
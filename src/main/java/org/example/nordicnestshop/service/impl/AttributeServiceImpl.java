@@ -1,33 +1,34 @@
 package org.example.nordicnestshop.service.impl;
 
-import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
 import lombok.RequiredArgsConstructor;
-import org.example.nordicnestshop.model.product.Attribute;
 import org.example.nordicnestshop.model.product.Product;
+import org.example.nordicnestshop.repository.AttributeRepository;
 import org.example.nordicnestshop.service.AttributeService;
-import org.springframework.data.domain.Page;
+import org.example.nordicnestshop.service.index.ProductFilterIndex;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
 @Service
 @RequiredArgsConstructor
 public class AttributeServiceImpl implements AttributeService {
+    private final AttributeRepository attributeRepository;
+    private final ProductFilterIndex productFilterIndex;
+
+    @Override
+    public Map<String, Map<String, Long>> getAttributeFacets(
+            Specification<Product> specification) {
+        Map<String, Map<String, Long>> facets = new TreeMap<>();
+        attributeRepository.countValuesByProductSpecification(specification)
+                .forEach(count -> facets.computeIfAbsent(count.key(), k -> new TreeMap<>())
+                        .put(count.value(), count.count()));
+        return facets;
+    }
+
     @Override
-    public Map<String, List<String>> getAvailableAttributes(Page<Product> products) {
-        return products.stream()
-                .flatMap(product -> product.getAttributes().stream())
-                .filter(Objects::nonNull)
-                .collect(Collectors.groupingBy(
-                        Attribute::getKey,
-                        Collectors.mapping(
-                                Attribute::getValue,
-                                Collectors.collectingAndThen(
-                                        Collectors.toSet(),
-                                        set -> set.stream().sorted().collect(Collectors.toList())
-                                )
-                        )
-                ));
+    public Map<String, Map<String, Long>> getAttributeFacets(RoaringBitmap productIds) {
+        return productFilterIndex.countAttributeValues(productIds);
     }
 }
@@ -1,33 +1,43 @@
 package org.example.nordicnestshop.service.impl;
 
+import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.example.nordicnestshop.dto.category.CategoryDto;
 import org.example.nordicnestshop.dto.category.CreateCategoryDto;
 import org.example.nordicnestshop.dto.category.UpdateCategoryDto;
+import org.example.nordicnestshop.event.CategoryChangedEvent;
 import org.example.nordicnestshop.exception.ElementNotFoundException;
+import org.example.nordicnestshop.exception.IncorrectArgumentException;
 import org.example.nordicnestshop.mapper.CategoryMapper;
 import org.example.nordicnestshop.model.Category;
 import org.example.nordicnestshop.repository.CategoryRepository;
+import org.example.nordicnestshop.repository.projection.EntityVersionView;
 import org.example.nordicnestshop.service.CategoryService;
-import org.example.nordicnestshop.service.amazon.s3.S3Service;
+import org.example.nordicnestshop.service.image.ImageService;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
 
 @Service
 @RequiredArgsConstructor
 public class CategoryServiceImpl implements CategoryService {
     private final CategoryRepository categoryRepository;
     private final CategoryMapper categoryMapper;
-    private final S3Service s3Service;
+    private final ImageService imageService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
     public CategoryDto create(CreateCategoryDto categoryDto) {
         Category newCategory = categoryMapper.toEntity(categoryDto);
-        newCategory.setImageUrl(s3Service.uploadFile(categoryDto.getImage()));
-        return categoryMapper.toDto(categoryRepository.save(newCategory));
+        newCategory.setImageUrl(storeImage(categoryDto.getImage(), categoryDto.getImageKey()));
+        Category savedCategory = categoryRepository.save(newCategory);
+        eventPublisher.publishEvent(new CategoryChangedEvent(savedCategory.getId()));
+        return categoryMapper.toDto(savedCategory);
     }
 
     @Override
@@ -38,13 +48,20 @@ public class CategoryServiceImpl implements CategoryService {
 
         categoryMapper.updateEntity(updateCategoryDto, category);
 
-        if (updateCategoryDto.getImage() != null && !updateCategoryDto.getImage().isEmpty()) {
-            String newUrl = s3Service.uploadFile(updateCategoryDto.getImage());
-            s3Service.deleteFile(category.getImageUrl());
-            category.setImageUrl(newUrl);
+        String replacedImageUrl = null;
+        if ((updateCategoryDto.getImage() != null && !updateCategoryDto.getImage().isEmpty())
+                || StringUtils.hasText(updateCategoryDto.getImageKey())) {
+            replacedImageUrl = category.getImageUrl();
+            category.setImageUrl(storeImage(updateCategoryDto.getImage(),
+                    updateCategoryDto.getImageKey()));
         }
 
-        return categoryMapper.toDto(categoryRepository.save(category));
+        Category savedCategory = categoryRepository.saveAndFlush(category);
+        if (replacedImageUrl != null) {
+            imageService.releaseImages(List.of(replacedImageUrl));
+        }
+        eventPublisher.publishEvent(new CategoryChangedEvent(id));
+        return categoryMapper.toDto(savedCategory);
     }
 
     @Override
@@ -53,8 +70,11 @@ public class CategoryServiceImpl implements CategoryService {
         Category category = categoryRepository.findById(id).orElseThrow(
                 () -> new ElementNotFoundException("Can't find Category object by ID:" + id));
 
-        s3Service.deleteFile(category.getImageUrl());
         categoryRepository.deleteCategoryAndAssociations(category.getId());
+        if (category.getImageUrl() != null) {
+            imageService.releaseImages(List.of(category.getImageUrl()));
+        }
+        eventPublisher.publishEvent(new CategoryChangedEvent(id));
     }
 
     @Override
@@ -79,4 +99,28 @@ public class CategoryServiceImpl implements CategoryService {
         return categoryMapper.toDto(categoryRepository.findById(id).orElseThrow(
                 () -> new ElementNotFoundException("Can't find Category object by ID:" + id)));
     }
+
+    @Override
+    public EntityVersionView getVersionById(Long id) {
+        return categoryRepository.findVersionById(id).orElseThrow(
+                () -> new ElementNotFoundException("Can't find Category object by ID:" + id));
+    }
+
+    @Override
+    public EntityVersionView getVersionByTitle(String title) {
+        return categoryRepository.findVersionByTitle(title).orElseThrow(
+                () -> new ElementNotFoundException("Can't find Category object by Title: "
+                        + title));
+    }
+
+    // The image is either sent with the request or uploaded directly to storage beforehand
+    private String storeImage(MultipartFile image, String imageKey) {
+        if (!StringUtils.hasText(imageKey)) {
+            return imageService.uploadImage(image);
+        }
+        if (image != null && !image.isEmpty()) {
+            throw new IncorrectArgumentException("Provide either image or image key, not both.");
+        }
+        return imageService.importImage(imageKey);
+    }
 }
@@ -0,0 +1,109 @@
+package org.example.nordicnestshop.service.impl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import lombok.RequiredArgsConstructor;
+import org.example.nordicnestshop.dto.product.PriceBucketDto;
+import org.example.nordicnestshop.dto.product.PriceStatisticsDto;
+import org.example.nordicnestshop.model.product.Product;
+import org.example.nordicnestshop.repository.ProductRepository;
+import org.example.nordicnestshop.repository.projection.PriceRange;
+import org.example.nordicnestshop.service.PriceStatisticsService;
+import org.example.nordicnestshop.service.index.ProductFilterIndex;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+public class PriceStatisticsServiceImpl implements PriceStatisticsService {
+    private static final int PRICE_SCALE = 2;
+
+    private final ProductRepository productRepository;
+    private final ProductFilterIndex productFilterIndex;
+
+    @Override
+    public PriceStatisticsDto getPriceStatistics(Specification<Product> specification,
+                                                 int buckets) {
+        PriceRange range = productRepository.findPriceRange(specification);
+        if (range == null || range.min() == null) {
+            return empty(buckets);
+        }
+
+        long[] counts = new long[buckets];
+        if (buckets > 0 && range.min().compareTo(range.max()) == 0) {
+            counts[0] = productRepository.count(specification);
+        } else if (buckets > 0) {
+            productRepository.countByPriceBuckets(specification, range.min(), range.max(),
+                            buckets)
+                    .forEach(bucket -> counts[bucket.bucket() - 1] = bucket.count());
+        }
+        return toPriceStatistics(range.min(), range.max(), counts);
+    }
+
+    @Override
+    public PriceStatisticsDto getPriceStatistics(RoaringBitmap productIds, int buckets) {
+        return getPriceStatistics(productFilterIndex.countPrices(productIds), buckets);
+    }
+
+    @Override
+    public PriceStatisticsDto getPriceStatistics(NavigableMap<BigDecimal, Long> prices,
+                                                 int buckets) {
+        if (prices.isEmpty()) {
+            return empty(buckets);
+        }
+
+        BigDecimal min = prices.firstKey();
+        BigDecimal max = prices.lastKey();
+        long[] counts = new long[buckets];
+        prices.forEach((price, count) -> {
+            if (buckets > 0) {
+                counts[getBucket(price, min, max, buckets)] += count;
+            }
+        });
+        return toPriceStatistics(min, max, counts);
+    }
+
+    private PriceStatisticsDto empty(int buckets) {
+        return new PriceStatisticsDto(BigDecimal.ZERO, BigDecimal.ZERO,
+                buckets > 0 ? List.of() : null);
+    }
+
+    private PriceStatisticsDto toPriceStatistics(BigDecimal min, BigDecimal max,
+                                                 long[] counts) {
+        if (counts.length == 0) {
+            return new PriceStatisticsDto(min, max, null);
+        }
+
+        List<PriceBucketDto> histogram = new ArrayList<>(counts.length);
+        for (int i = 0; i < counts.length; i++) {
+            BigDecimal to = i == counts.length - 1 ? max : getBucketBound(min, max,
+                    counts.length, i + 1);
+            histogram.add(new PriceBucketDto(getBucketBound(min, max, counts.length, i), to,
+                    counts[i]));
+        }
+        return new PriceStatisticsDto(min, max, histogram);
+    }
+
+    // Same bucketing as width_bucket, with the maximum price kept in the last bucket
+    private int getBucket(BigDecimal price, BigDecimal min, BigDecimal max, int buckets) {
+        if (min.compareTo(max) == 0) {
+            return 0;
+        }
+        int bucket = price.subtract(min)
+                .multiply(BigDecimal.valueOf(buckets))
+                .divide(max.subtract(min), 0, RoundingMode.FLOOR)
+                .intValue();
+        return Math.min(bucket, buckets - 1);
+    }
+
+    private BigDecimal getBucketBound(BigDecimal min, BigDecimal max, int buckets, int index) {
+        return max.subtract(min)
+                .multiply(BigDecimal.valueOf(index))
+                .divide(BigDecimal.valueOf(buckets), PRICE_SCALE, RoundingMode.HALF_UP)
+                .add(min);
+    }
+}
@@ -1,51 +1,80 @@
 package org.example.nordicnestshop.service.impl;
 
-import java.math.BigDecimal;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashSet;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
 import org.example.nordicnestshop.dto.product.CreateProductDto;
+import org.example.nordicnestshop.dto.product.PriceStatisticsDto;
 import org.example.nordicnestshop.dto.product.ProductFullDto;
 import org.example.nordicnestshop.dto.product.ProductSearchResponseDto;
 import org.example.nordicnestshop.dto.product.UpdateProductDto;
+import org.example.nordicnestshop.event.ProductChangedEvent;
 import org.example.nordicnestshop.exception.ElementNotFoundException;
 import org.example.nordicnestshop.exception.IncorrectArgumentException;
 import org.example.nordicnestshop.mapper.ProductMapper;
-import org.example.nordicnestshop.model.product.Attribute;
+import org.example.nordicnestshop.model.enums.CountMode;
+import org.example.nordicnestshop.model.enums.SearchMode;
 import org.example.nordicnestshop.model.product.Product;
 import org.example.nordicnestshop.model.product.ProductImage;
-import org.example.nordicnestshop.repository.AttributeRepository;
 import org.example.nordicnestshop.repository.CategoryRepository;
-import org.example.nordicnestshop.repository.ProductImageRepository;
 import org.example.nordicnestshop.repository.ProductRepository;
-import org.example.nordicnestshop.repository.specification.SpecificationProvider;
-import org.example.nordicnestshop.repository.specification.impl.AttributesSpecificationProvider;
-import org.example.nordicnestshop.service.AttributeService;
+import org.example.nordicnestshop.repository.projection.EntityVersionView;
+import org.example.nordicnestshop.repository.projection.ProductCardView;
 import org.example.nordicnestshop.service.ProductService;
-import org.example.nordicnestshop.service.amazon.s3.S3Service;
-import org.springframework.data.domain.Page;
+import org.example.nordicnestshop.service.detail.ProductDetailCache;
+import org.example.nordicnestshop.service.image.ImageService;
+import org.example.nordicnestshop.service.image.StoredImage;
+import org.example.nordicnestshop.service.search.ProductSearchCursor;
+import org.example.nordicnestshop.service.search.ProductSearchEngine;
+import org.example.nordicnestshop.service.search.ProductSearchRequest;
+import org.example.nordicnestshop.service.search.ProductSearchResult;
+import org.example.nordicnestshop.service.search.SearchResultCache;
+import org.example.nordicnestshop.service.search.SearchResultCache.SearchAnswer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 @Service
 @RequiredArgsConstructor
 public class ProductServiceImpl implements ProductService {
+    private static final String PRICE_BUCKETS = "priceBuckets";
+    private static final int MAX_PRICE_BUCKETS = 100;
+    private static final String SEARCH_TEXT = "searchText";
+    private static final String SEARCH_MODE = "searchMode";
+    private static final String SORT = "sort";
+    private static final String CURSOR = "cursor";
+    private static final String COUNT = "count";
+
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
-    private final ProductImageRepository productImageRepository;
-    private final AttributeRepository attributeRepository;
     private final ProductMapper productMapper;
-    private final AttributeService attributeService;
-    private final S3Service s3Service;
-    private final List<SpecificationProvider> specificationProviders;
+    private final ImageService imageService;
+    private final ProductSearchEngine productSearchEngine;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SearchResultCache searchResultCache;
+    private final ProductDetailCache productDetailCache;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${product.detail.database-json:false}")
+    private boolean databaseJson;
 
     @Transactional
     @Override
@@ -60,9 +89,12 @@ public class ProductServiceImpl implements ProductService {
         }
 
         Product product = productMapper.toEntity(createProductDto);
-        product.setImages(uploadImages(createProductDto.getImages(), product));
+        product.setImages(storeImages(createProductDto.getImages(),
+                createProductDto.getImageKeys(), product));
 
-        return productMapper.toFullDto(productRepository.save(product));
+        Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(savedProduct.getId()));
+        return productMapper.toFullDto(savedProduct);
     }
 
     @Transactional
@@ -81,17 +113,24 @@ public class ProductServiceImpl implements ProductService {
                 .orElseThrow(() ->
                         new ElementNotFoundException("Can't find Product with current ID: " + id));
 
-        if (updateProductDto.getImages() != null && !updateProductDto.getImages().isEmpty()) {
-            deleteImages(product.getImages());
+        List<String> replacedImageUrls = List.of();
+        if (!isEmpty(updateProductDto.getImages()) || !isEmpty(updateProductDto.getImageKeys())) {
+            replacedImageUrls = getImageUrls(product.getImages());
             product.getImages().clear();
-            product.getImages().addAll(uploadImages(updateProductDto.getImages(), product));
+            product.getImages().addAll(storeImages(updateProductDto.getImages(),
+                    updateProductDto.getImageKeys(), product));
         }
 
         productMapper.updateEntity(updateProductDto, product);
 
-        return productMapper.toFullDto(productRepository.save(product));
+        Product savedProduct = productRepository.saveAndFlush(product);
+        imageService.releaseImages(replacedImageUrls);
+        eventPublisher.publishEvent(new ProductChangedEvent(savedProduct.getId()));
+        return productMapper.toFullDto(savedProduct);
     }
 
+    // Collections load lazily with a query each, fetching all three at once multiplies the rows
+    @Transactional(readOnly = true)
     @Override
     public ProductFullDto getById(Long id) {
         return productMapper.toFullDto(productRepository.findById(id)
@@ -99,29 +138,33 @@ public class ProductServiceImpl implements ProductService {
                         new ElementNotFoundException("Can't find Product with current ID: " + id)));
     }
 
+    @Transactional(readOnly = true)
     @Override
-    public ProductSearchResponseDto getAllByCategoryIdsAndAttributes(Map<String, String> attributes,
-                                                                     Pageable pageable) {
-        Specification<Product> specification = getSpecification(attributes);
-
-        Page<Product> products = productRepository.findAll(specification, pageable);
-        Map<Long, List<ProductImage>> productImages = productImageRepository
-                .findAllByProductIn(products.getContent())
-                .stream()
-                .collect(Collectors.groupingBy(a -> a.getProduct().getId()));
-
-        Map<Long, List<Attribute>> productAttributes = attributeRepository
-                .findAllByProductIn(products.getContent())
-                .stream()
-                .collect(Collectors.groupingBy(a -> a.getProduct().getId()));
+    public byte[] getJsonById(Long id, long version) {
+        return productDetailCache.get(id, version, () -> databaseJson
+                ? productRepository.findDetailJsonById(id)
+                        .orElseThrow(() -> new ElementNotFoundException(
+                                "Can't find Product with current ID: " + id))
+                        .getBytes(StandardCharsets.UTF_8)
+                : serialize(getById(id)));
+    }
 
-        products.forEach(p -> {
-            p.setAttributes(new HashSet<>(productAttributes
-                    .getOrDefault(p.getId(), Collections.emptyList())));
-            p.setImages(productImages.get(p.getId()));
-        });
+    @Override
+    public EntityVersionView getVersion(Long id) {
+        return productRepository.findVersionById(id)
+                .orElseThrow(() ->
+                        new ElementNotFoundException("Can't find Product with current ID: " + id));
+    }
 
-        return formResult(products);
+    // Cache hits only read the generation, a transaction is opened for searches
+    @Override
+    public ProductSearchResponseDto getAllByCategoryIdsAndAttributes(Map<String, String> attributes,
+                                                                     Pageable pageable) {
+        attributes.remove("page_size");
+        attributes.remove("page_number");
+        attributes.remove(SORT);
+        return searchResultCache.get(attributes, pageable, () -> transactionTemplate.execute(
+                status -> search(new HashMap<>(attributes), pageable)));
     }
 
     @Transactional
@@ -131,8 +174,65 @@ public class ProductServiceImpl implements ProductService {
                 .orElseThrow(() ->
                         new ElementNotFoundException("Can't find Product with current ID: " + id));
 
-        deleteImages(product.getImages());
+        List<String> imageUrls = getImageUrls(product.getImages());
         productRepository.delete(product);
+        productRepository.flush();
+        imageService.releaseImages(imageUrls);
+        eventPublisher.publishEvent(new ProductChangedEvent(id));
+    }
+
+    private SearchAnswer search(Map<String, String> attributes, Pageable pageable) {
+        final int priceBuckets = getPriceBuckets(attributes.remove(PRICE_BUCKETS));
+        final CountMode countMode = getCountMode(attributes.remove(COUNT));
+        String searchModeValue = attributes.remove(SEARCH_MODE);
+        String cursorValue = attributes.remove(CURSOR);
+        ProductSearchCursor cursor = cursorValue == null || cursorValue.isBlank()
+                ? null
+                : ProductSearchCursor.decode(cursorValue);
+        SearchMode searchMode = cursor != null
+                ? cursor.searchMode()
+                : getSearchMode(searchModeValue);
+        boolean hasSearchText = attributes.get(SEARCH_TEXT) != null;
+
+        Optional<Sort.Order> keysetOrder = cursor != null
+                ? Optional.of(new Sort.Order(cursor.direction(), cursor.property()))
+                : getKeysetOrder(pageable.getSort(), cursorValue != null);
+        Pageable searchPageable = keysetOrder
+                .map(order -> (Pageable) PageRequest.of(cursorValue != null
+                                ? 0
+                                : pageable.getPageNumber(), pageable.getPageSize(),
+                        ProductSearchCursor.toSort(order)))
+                .orElse(pageable);
+
+        ProductSearchRequest request = new ProductSearchRequest(attributes, searchMode,
+                priceBuckets, searchPageable, countMode, cursorValue != null, cursor);
+        ProductSearchResult result = productSearchEngine.search(request);
+        long generation = result.generation();
+        Slice<ProductCardView> products = result.products();
+        if (hasSearchText && searchMode == SearchMode.EXACT && cursor == null
+                && !products.hasContent() && !products.hasPrevious()) {
+            // Zero exact hits is most likely a typo, retry in the same request
+            searchMode = SearchMode.FUZZY;
+            result = productSearchEngine.search(request.withSearchMode(searchMode));
+            generation = Math.min(generation, result.generation());
+            products = result.products();
+        }
+        String nextCursor = null;
+        if (keysetOrder.isPresent() && products.hasNext()) {
+            nextCursor = ProductSearchCursor.after(products.getContent()
+                            .get(products.getNumberOfElements() - 1), keysetOrder.get(),
+                    searchMode).encode();
+        }
+        return new SearchAnswer(formResult(result, hasSearchText ? searchMode : null,
+                nextCursor), generation);
+    }
+
+    private byte[] serialize(ProductFullDto product) {
+        try {
+            return objectMapper.writeValueAsBytes(product);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     private void ifCategoryExist(List<Long> categoryIds) {
@@ -146,65 +246,122 @@ public class ProductServiceImpl implements ProductService {
         }
     }
 
-    private List<ProductImage> uploadImages(List<MultipartFile> images, Product product) {
-        List<String> urls = s3Service.uploadFiles(images);
+    // Images are either sent with the request or uploaded directly to storage beforehand
+    private List<ProductImage> storeImages(List<MultipartFile> images, List<String> imageKeys,
+                                           Product product) {
+        if (!isEmpty(images) && !isEmpty(imageKeys)) {
+            throw new IncorrectArgumentException("Provide either images or image keys, not both.");
+        }
+        List<StoredImage> storedImages;
+        try {
+            storedImages = (isEmpty(imageKeys)
+                    ? imageService.uploadImages(images)
+                    : imageService.importImages(imageKeys)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
 
-        return urls.stream()
-                .map(url -> {
+        return storedImages.stream()
+                .map(storedImage -> {
                     ProductImage productImage = new ProductImage();
-                    productImage.setImageUrl(url);
+                    productImage.setImageUrl(storedImage.imageUrl());
+                    productImage.setCardUrl(storedImage.cardUrl());
+                    productImage.setThumbnailUrl(storedImage.thumbnailUrl());
                     productImage.setProduct(product);
                     return productImage;
                 })
                 .toList();
     }
 
-    private void deleteImages(List<ProductImage> images) {
-        List<String> urls = images.stream().map(ProductImage::getImageUrl).toList();
-        s3Service.deleteFiles(urls);
+    private boolean isEmpty(List<?> list) {
+        return list == null || list.isEmpty();
+    }
+
+    private List<String> getImageUrls(List<ProductImage> images) {
+        return images.stream()
+                .flatMap(image -> Stream.of(image.getImageUrl(), image.getCardUrl(),
+                        image.getThumbnailUrl()))
+                .filter(Objects::nonNull)
+                .toList();
     }
 
-    private ProductSearchResponseDto formResult(Page<Product> products) {
+    private ProductSearchResponseDto formResult(ProductSearchResult result,
+                                                SearchMode searchMode,
+                                                String nextCursor) {
+        PriceStatisticsDto priceStatistics = result.priceStatistics();
+
         return new ProductSearchResponseDto(
-                products.map(productMapper::toDto),
-                attributeService.getAvailableAttributes(products),
-                products.stream().map(Product::getPrice)
-                        .max(Comparator.naturalOrder()).orElse(BigDecimal.ZERO),
-                products.stream().map(Product::getPrice)
-                        .min(Comparator.naturalOrder()).orElse(BigDecimal.ZERO));
+                result.products().map(productMapper::toDto),
+                toAvailableAttributes(result.attributeFacets()),
+                result.attributeFacets(),
+                priceStatistics.getMinPrice(),
+                priceStatistics.getMaxPrice(),
+                priceStatistics.getHistogram(),
+                searchMode,
+                nextCursor,
+                result.estimatedTotal());
     }
 
-    private Map<String, List<String>> convertAttributesRequest(Map<String, String> attributes) {
-        return attributes.entrySet().stream()
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        entry -> Arrays.asList(entry.getValue().toLowerCase().split(","))
-                ));
+    // Only a single id, price or title order has a (key, id) position a cursor can seek from
+    private Optional<Sort.Order> getKeysetOrder(Sort sort, boolean keyset) {
+        Optional<Sort.Order> order = ProductSearchCursor.getKeysetOrder(sort);
+        if (!keyset || order.isPresent()) {
+            return order;
+        }
+        if (sort.isSorted()) {
+            throw new IncorrectArgumentException(
+                    "Cursor pagination supports sorting by a single id, price or title");
+        }
+        return Optional.of(Sort.Order.asc(ProductSearchCursor.ID));
     }
 
-    private Specification<Product> getSpecification(Map<String, String> attributes) {
-        attributes.remove("page_size");
-        attributes.remove("page_number");
-        Specification<Product> specification = Specification.where(null);
+    private CountMode getCountMode(String countMode) {
+        if (countMode == null) {
+            return CountMode.EXACT;
+        }
         try {
-            for (SpecificationProvider specificationProvider : specificationProviders) {
-                if (specificationProvider.getName().equals("attributes")) {
-                    continue;
-                }
-                if (attributes.get(specificationProvider.getName()) != null) {
-                    specificationProvider.parseValues(attributes.remove(specificationProvider
-                            .getName()));
-                    specification = specification.and(specificationProvider.getSpecification());
-                }
-            }
+            return CountMode.valueOf(countMode.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IncorrectArgumentException("Unknown count mode: " + countMode, e);
+        }
+    }
 
-            AttributesSpecificationProvider attributesSpecificationProvider =
-                    new AttributesSpecificationProvider();
-            attributesSpecificationProvider.setAttributes(convertAttributesRequest(attributes));
-            specification = specification.and(attributesSpecificationProvider.getSpecification());
+    private SearchMode getSearchMode(String searchMode) {
+        if (searchMode == null) {
+            return SearchMode.EXACT;
+        }
+        try {
+            return SearchMode.valueOf(searchMode.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IncorrectArgumentException("Unknown search mode: " + searchMode, e);
+        }
+    }
+
+    private int getPriceBuckets(String priceBuckets) {
+        if (priceBuckets == null) {
+            return 0;
+        }
+        try {
+            int buckets = Integer.parseInt(priceBuckets);
+            if (buckets < 1 || buckets > MAX_PRICE_BUCKETS) {
+                throw new IncorrectArgumentException(
+                        "Price buckets must be between 1 and " + MAX_PRICE_BUCKETS);
+            }
+            return buckets;
         } catch (NumberFormatException e) {
             throw new IncorrectArgumentException("Incorrect input format. " + e.getMessage(), e);
         }
-        return specification;
+    }
+
+    private Map<String, List<String>> toAvailableAttributes(
+            Map<String, Map<String, Long>> attributeFacets) {
+        return attributeFacets.entrySet().stream()
+                .collect(Collectors.toMap(
+                        Map.Entry::getKey,
+                        entry -> List.copyOf(entry.getValue().keySet())
+                ));
     }
 }
@@ -0,0 +1,36 @@
+package org.example.nordicnestshop.service.index;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import org.roaringbitmap.RoaringBitmap;
+
+public interface ProductFilterIndex {
+    /**
+     * Returns ids of products matching every category group (any category of a group)
+     * and every attribute key (any of its values), or empty when the index is not built.
+     * Call {@link #sync()} first to catch up with the catalog.
+     */
+    Optional<RoaringBitmap> match(Collection<List<Long>> categoryGroups,
+                                  Map<String, List<String>> attributes);
+
+    Map<String, Map<String, Long>> countAttributeValues(RoaringBitmap productIds);
+
+    /**
+     * Returns the number of given products per price, in ascending price order.
+     */
+    NavigableMap<BigDecimal, Long> countPrices(RoaringBitmap productIds);
+
+    /**
+     * Returns the catalog generation the index is at, anything read from it afterwards is at
+     * least that recent.
+     */
+    long getGeneration();
+
+    void sync();
+
+    void rebuild();
+}
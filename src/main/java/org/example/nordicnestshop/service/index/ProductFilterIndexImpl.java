@@ -0,0 +1,319 @@
+package org.example.nordicnestshop.service.index;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.example.nordicnestshop.event.ProductChangedEvent;
+import org.example.nordicnestshop.model.CatalogChange;
+import org.example.nordicnestshop.repository.AttributeRepository;
+import org.example.nordicnestshop.repository.CatalogChangeRepository;
+import org.example.nordicnestshop.repository.ProductRepository;
+import org.example.nordicnestshop.repository.projection.ProductAttributeView;
+import org.example.nordicnestshop.repository.projection.ProductCategoryView;
+import org.example.nordicnestshop.repository.projection.ProductPriceView;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class ProductFilterIndexImpl implements ProductFilterIndex {
+    private static final int MAX_CHANGES_PER_SYNC = 10_000;
+
+    private final ProductRepository productRepository;
+    private final AttributeRepository attributeRepository;
+    private final CatalogChangeRepository catalogChangeRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock syncLock = new ReentrantLock();
+
+    @Value("${search.index.enabled:true}")
+    private volatile boolean enabled;
+
+    @Value("${search.index.change-retention:P7D}")
+    private Duration changeRetention;
+
+    private IndexData data;
+    private volatile long generation = -1;
+
+    @Override
+    public Optional<RoaringBitmap> match(Collection<List<Long>> categoryGroups,
+                                         Map<String, List<String>> attributes) {
+        if (!enabled || generation < 0) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<RoaringBitmap> conditions = new ArrayList<>();
+            categoryGroups.forEach(group -> conditions.add(FastAggregation.or(group.stream()
+                    .map(data.categories::get)
+                    .filter(Objects::nonNull)
+                    .iterator())));
+            attributes.forEach((key, values) -> {
+                Map<String, RoaringBitmap> valueBitmaps = data.attributes.getOrDefault(key,
+                        Map.of());
+                conditions.add(FastAggregation.or(values.stream()
+                        .map(valueBitmaps::get)
+                        .filter(Objects::nonNull)
+                        .iterator()));
+            });
+
+            if (conditions.isEmpty()) {
+                return Optional.of(data.products.clone());
+            }
+            return Optional.of(FastAggregation.and(conditions.iterator()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Map<String, Long>> countAttributeValues(RoaringBitmap productIds) {
+        Map<String, Map<String, Long>> counts = new TreeMap<>();
+        lock.readLock().lock();
+        try {
+            data.attributes.forEach((key, values) -> values.forEach((value, bitmap) -> {
+                long count = RoaringBitmap.andCardinality(productIds, bitmap);
+                if (count > 0) {
+                    counts.computeIfAbsent(key, k -> new TreeMap<>()).put(value, count);
+                }
+            }));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return counts;
+    }
+
+    @Override
+    public NavigableMap<BigDecimal, Long> countPrices(RoaringBitmap productIds) {
+        NavigableMap<BigDecimal, Long> counts = new TreeMap<>();
+        lock.readLock().lock();
+        try {
+            data.prices.forEach((price, bitmap) -> {
+                long count = RoaringBitmap.andCardinality(productIds, bitmap);
+                if (count > 0) {
+                    counts.put(price, count);
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return counts;
+    }
+
+    @Override
+    public long getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public void sync() {
+        if (!enabled || !syncLock.tryLock()) {
+            return;
+        }
+        try {
+            if (generation < 0) {
+                rebuildLocked();
+                return;
+            }
+
+            List<CatalogChange> changes = catalogChangeRepository
+                    .findAllByGenerationGreaterThanOrderByGeneration(generation,
+                            Limit.of(MAX_CHANGES_PER_SYNC + 1));
+            if (changes.isEmpty()) {
+                return;
+            }
+            // Generations are contiguous, a gap means the log was pruned past this node
+            if (changes.size() > MAX_CHANGES_PER_SYNC
+                    || changes.get(0).getGeneration() != generation + 1
+                    || changes.stream().anyMatch(CatalogChange::isFullReset)) {
+                rebuildLocked();
+                return;
+            }
+
+            Set<Long> productIds = changes.stream()
+                    .map(CatalogChange::getProductId)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+            if (!productIds.isEmpty()) {
+                reindex(productIds);
+            }
+            generation = changes.get(changes.size() - 1).getGeneration();
+        } catch (ArithmeticException e) {
+            disable();
+        } catch (RuntimeException e) {
+            log.error("Product filter index sync failed: {}", e.getMessage(), e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    @Override
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            rebuildLocked();
+        } catch (ArithmeticException e) {
+            disable();
+        } catch (RuntimeException e) {
+            log.error("Product filter index rebuild failed: {}", e.getMessage(), e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        sync();
+    }
+
+    @Scheduled(fixedDelayString = "${search.index.change-prune-interval:PT1H}")
+    public void pruneChangeLog() {
+        Integer removed = transactionTemplate.execute(status -> catalogChangeRepository
+                .deleteAllChangedBefore(Instant.now().minus(changeRetention)));
+        log.info("Pruned {} catalog changes older than {}", removed, changeRetention);
+    }
+
+    private void rebuildLocked() {
+        // Changes committed while loading are replayed by the next sync, reindexing is idempotent
+        long currentGeneration = catalogChangeRepository.getCurrentGeneration();
+        IndexData newData = new IndexData();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<ProductPriceView> views = productRepository.streamAllPriceViews()) {
+                views.forEach(newData::addProduct);
+            }
+            try (Stream<ProductAttributeView> views = attributeRepository.streamAllViews()) {
+                views.forEach(newData::addAttribute);
+            }
+            try (Stream<ProductCategoryView> views = productRepository
+                    .streamAllCategoryViews()) {
+                views.forEach(newData::addCategory);
+            }
+        });
+        newData.runOptimize();
+
+        lock.writeLock().lock();
+        try {
+            data = newData;
+            generation = currentGeneration;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Product filter index built: {} products at generation {}",
+                newData.products.getCardinality(), currentGeneration);
+    }
+
+    private void reindex(Set<Long> productIds) {
+        List<ProductPriceView> products = productRepository.findAllPriceViewsByIdIn(productIds);
+        Set<Long> existingIds = products.stream()
+                .map(ProductPriceView::getId)
+                .collect(Collectors.toSet());
+        List<ProductAttributeView> attributes = existingIds.isEmpty() ? List.of()
+                : attributeRepository.findAllViewsByProductIdIn(existingIds);
+        List<ProductCategoryView> categories = existingIds.isEmpty() ? List.of()
+                : productRepository.findAllCategoryViewsByProductIdIn(existingIds);
+
+        lock.writeLock().lock();
+        try {
+            productIds.forEach(id -> data.remove(toIndexId(id)));
+            products.forEach(data::addProduct);
+            attributes.forEach(data::addAttribute);
+            categories.forEach(data::addCategory);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void disable() {
+        log.error("Product ids exceed the bitmap range, product filter index disabled");
+        enabled = false;
+        generation = -1;
+    }
+
+    private static int toIndexId(Long id) {
+        return Math.toIntExact(id);
+    }
+
+    private static class IndexData {
+        private final RoaringBitmap products = new RoaringBitmap();
+        private final Map<String, Map<String, RoaringBitmap>> attributes = new HashMap<>();
+        private final Map<Long, RoaringBitmap> categories = new HashMap<>();
+        private final NavigableMap<BigDecimal, RoaringBitmap> prices = new TreeMap<>();
+
+        private void addProduct(ProductPriceView view) {
+            int productId = toIndexId(view.getId());
+            products.add(productId);
+            prices.computeIfAbsent(view.getPrice(), p -> new RoaringBitmap()).add(productId);
+        }
+
+        private void addAttribute(ProductAttributeView view) {
+            attributes.computeIfAbsent(view.getKey(), k -> new HashMap<>())
+                    .computeIfAbsent(view.getValue(), v -> new RoaringBitmap())
+                    .add(toIndexId(view.getProductId()));
+        }
+
+        private void addCategory(ProductCategoryView view) {
+            categories.computeIfAbsent(view.getCategoryId(), c -> new RoaringBitmap())
+                    .add(toIndexId(view.getProductId()));
+        }
+
+        private void remove(int productId) {
+            products.remove(productId);
+            attributes.values().forEach(values -> values.values()
+                    .forEach(bitmap -> bitmap.remove(productId)));
+            categories.values().forEach(bitmap -> bitmap.remove(productId));
+            prices.values().removeIf(bitmap -> {
+                bitmap.remove(productId);
+                return bitmap.isEmpty();
+            });
+        }
+
+        private void runOptimize() {
+            products.runOptimize();
+            attributes.values().forEach(values -> values.values()
+                    .forEach(RoaringBitmap::runOptimize));
+            categories.values().forEach(RoaringBitmap::runOptimize);
+            prices.values().forEach(RoaringBitmap::runOptimize);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package org.example.nordicnestshop.service.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.example.nordicnestshop.dto.product.PriceStatisticsDto;
+import org.example.nordicnestshop.model.enums.CountMode;
+import org.example.nordicnestshop.model.enums.SearchMode;
+import org.example.nordicnestshop.model.product.Product;
+import org.example.nordicnestshop.repository.ProductRepository;
+import org.example.nordicnestshop.repository.projection.ProductCardView;
+import org.example.nordicnestshop.repository.specification.ProductSpecifications;
+import org.example.nordicnestshop.service.AttributeService;
+import org.example.nordicnestshop.service.PriceStatisticsService;
+import org.example.nordicnestshop.service.index.ProductFilterIndex;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+
+// Also serves the Lucene engine while its index is not built yet
+@Service
+@RequiredArgsConstructor
+public class JpaProductSearchEngine implements ProductSearchEngine {
+    private static final String ID = "id";
+
+    private final ProductRepository productRepository;
+    private final AttributeService attributeService;
+    private final PriceStatisticsService priceStatisticsService;
+    private final ProductFilterIndex productFilterIndex;
+    private final SearchCountCache searchCountCache;
+    private final ProductFilterPlanner productFilterPlanner;
+
+    @Value("${search.fuzzy.threshold:0.5}")
+    private double fuzzySearchThreshold;
+
+    @Value("${search.index.max-bound-ids:10000}")
+    private int maxBoundIds;
+
+    @Override
+    public ProductSearchResult search(ProductSearchRequest request) {
+        ProductFilterPlan plan = productFilterPlanner.getPlan(request.filters(),
+                request.searchMode());
+        if (request.searchMode() == SearchMode.FUZZY) {
+            productRepository.setWordSimilarityThreshold(String.valueOf(fuzzySearchThreshold));
+        }
+
+        ProductMatch match = findProducts(plan, request);
+        Map<String, Map<String, Long>> attributeFacets = match.productIds() != null
+                ? attributeService.getAttributeFacets(match.productIds())
+                : attributeService.getAttributeFacets(match.specification());
+        PriceStatisticsDto priceStatistics = match.productIds() != null
+                ? priceStatisticsService.getPriceStatistics(match.productIds(),
+                        request.priceBuckets())
+                : priceStatisticsService.getPriceStatistics(match.specification(),
+                        request.priceBuckets());
+        return new ProductSearchResult(match.products(), attributeFacets, priceStatistics,
+                getEstimatedTotal(request, plan, match), match.generation());
+    }
+
+    private Long getEstimatedTotal(ProductSearchRequest request, ProductFilterPlan plan,
+                                   ProductMatch match) {
+        if (request.countMode() != CountMode.ESTIMATE) {
+            return null;
+        }
+        if (match.productIds() != null) {
+            return match.productIds().getLongCardinality();
+        }
+        return searchCountCache.get(plan,
+                () -> productRepository.count(match.specification()));
+    }
+
+    private ProductMatch findProducts(ProductFilterPlan plan, ProductSearchRequest request) {
+        Optional<RoaringBitmap> matches = Optional.empty();
+        long generation = Long.MAX_VALUE;
+        if (plan.hasIndexFilters() || !plan.hasDatabaseFilters()) {
+            productFilterIndex.sync();
+            // Read before matching, the match is at least as recent
+            long indexGeneration = productFilterIndex.getGeneration();
+            matches = productFilterIndex.match(plan.categoryGroups(), plan.attributeFilters());
+            if (matches.isPresent()) {
+                generation = indexGeneration;
+            }
+        }
+        if (matches.isPresent() && !plan.hasDatabaseFilters()) {
+            // The index alone defines the result set, the database only loads the page
+            return new ProductMatch(getPageFromIndex(plan, matches.get(), request), null,
+                    matches.get(), generation);
+        }
+
+        Specification<Product> matchSpecification = plan.specification().and(matches
+                .map(productIds -> getIndexSpecification(plan, productIds))
+                .orElseGet(plan::indexSpecification));
+        return new ProductMatch(getPage(matchSpecification, request), matchSpecification, null,
+                generation);
+    }
+
+    // Without index filters the match is the whole catalog, and large matches would bind
+    // every id to both the page and the count query, the database filters are cheaper then
+    private Specification<Product> getIndexSpecification(ProductFilterPlan plan,
+                                                         RoaringBitmap matches) {
+        return plan.hasIndexFilters() && matches.getLongCardinality() <= maxBoundIds
+                ? ProductSpecifications.idIn(matches)
+                : plan.indexSpecification();
+    }
+
+    private Slice<ProductCardView> getPage(Specification<Product> specification,
+                                           ProductSearchRequest request) {
+        if (!request.keyset()) {
+            return request.countMode() == CountMode.EXACT
+                    ? productRepository.findCardPage(specification, request.pageable())
+                    : productRepository.findCardSlice(specification, request.pageable());
+        }
+        ProductSearchCursor after = request.after();
+        Specification<Product> pageSpecification = after == null ? specification
+                : specification.and(ProductSpecifications.after(after.property(),
+                        after.direction(), after.getKey(), after.id()));
+        return productRepository.findCardSlice(pageSpecification, request.pageable());
+    }
+
+    private Slice<ProductCardView> getPageFromIndex(ProductFilterPlan plan,
+                                                    RoaringBitmap matches,
+                                                    ProductSearchRequest request) {
+        Pageable pageable = request.pageable();
+        Sort sort = pageable.getSort();
+        if (request.keyset()) {
+            return sort.equals(Sort.by(Sort.Direction.ASC, ID))
+                    ? getSliceFromIndex(matches, request.after(), pageable)
+                    : getPage(getIndexSpecification(plan, matches), request);
+        }
+        if (!pageable.isPaged() || sort.isSorted()) {
+            return getPage(getIndexSpecification(plan, matches), request);
+        }
+
+        int total = matches.getCardinality();
+        List<Long> ids = new ArrayList<>();
+        for (long rank = pageable.getOffset();
+                rank < Math.min(total, pageable.getOffset() + pageable.getPageSize()); rank++) {
+            ids.add(Integer.toUnsignedLong(matches.select((int) rank)));
+        }
+        return new PageImpl<>(productRepository.findAllCardsByIdIn(ids), pageable, total);
+    }
+
+    // Ids are ordered in the bitmap, so the page after an id starts at its rank
+    private Slice<ProductCardView> getSliceFromIndex(RoaringBitmap matches,
+                                                     ProductSearchCursor after,
+                                                     Pageable pageable) {
+        long total = matches.getLongCardinality();
+        long from = after == null ? 0 : matches.rankLong(Math.toIntExact(after.id()));
+        List<Long> ids = new ArrayList<>();
+        for (long rank = from; rank < Math.min(total, from + pageable.getPageSize() + 1);
+                rank++) {
+            ids.add(Integer.toUnsignedLong(matches.select((int) rank)));
+        }
+        return toSlice(productRepository.findAllCardsByIdIn(ids), pageable);
+    }
+
+    private Slice<ProductCardView> toSlice(List<ProductCardView> content,
+                                           Pageable pageable) {
+        boolean hasNext = content.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content,
+                pageable, hasNext);
+    }
+
+    private record ProductMatch(Slice<ProductCardView> products,
+                                Specification<Product> specification,
+                                RoaringBitmap productIds,
+                                long generation) {
+    }
+}
@@ -0,0 +1,308 @@
+package org.example.nordicnestshop.service.search;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.example.nordicnestshop.event.ProductChangedEvent;
+import org.example.nordicnestshop.model.CatalogChange;
+import org.example.nordicnestshop.repository.AttributeRepository;
+import org.example.nordicnestshop.repository.CatalogChangeRepository;
+import org.example.nordicnestshop.repository.ProductRepository;
+import org.example.nordicnestshop.repository.projection.ProductAttributeView;
+import org.example.nordicnestshop.repository.projection.ProductCategoryView;
+import org.example.nordicnestshop.repository.projection.ProductDocumentView;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Service
+@Log4j2
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "search.engine", havingValue = "lucene")
+public class LuceneProductIndex {
+    static final String ID = "id";
+    static final String TITLE = "title";
+    static final String TITLE_SORT = "title_sort";
+    static final String ARTICLE = "article";
+    static final String DESCRIPTION = "description";
+    static final String PRICE = "price";
+    static final String CATEGORY = "category";
+    static final String ATTRIBUTE_VALUES = "attribute_values";
+    static final String ATTRIBUTE_PREFIX = "attribute.";
+    static final String ATTRIBUTE_FACET = "attribute_facet";
+    static final char ATTRIBUTE_SEPARATOR = '\u001f';
+
+    private static final int BATCH_SIZE = 1_000;
+    private static final int MAX_CHANGES_PER_SYNC = 10_000;
+
+    private final ProductRepository productRepository;
+    private final AttributeRepository attributeRepository;
+    private final CatalogChangeRepository catalogChangeRepository;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final Lock syncLock = new ReentrantLock();
+
+    @Value("${search.lucene.directory:${java.io.tmpdir}/nordic-nest-shop/product-index}")
+    private Path directory;
+
+    private Directory indexDirectory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private volatile long generation = -1;
+
+    @PostConstruct
+    public void open() throws IOException {
+        indexDirectory = new MMapDirectory(directory);
+        // Every start rebuilds the index from the database, whatever is left on disk is dropped
+        writer = new IndexWriter(indexDirectory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE));
+        searcherManager = new SearcherManager(writer, null);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        IOUtils.close(searcherManager, writer, indexDirectory, analyzer);
+    }
+
+    public Analyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    /**
+     * Tells whether a first generation has been published, until then searches have to be
+     * answered from the database.
+     */
+    public boolean isBuilt() {
+        return generation >= 0;
+    }
+
+    /**
+     * Returns the catalog generation the index is at, searches run afterwards are at least
+     * that recent.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    // Call sync() first to catch up with the catalog
+    public <T> T search(IndexSearch<T> search) {
+        if (!isBuilt()) {
+            throw new IllegalStateException("Product search index is not built yet");
+        }
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                return search.apply(searcher);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void sync() {
+        if (!syncLock.tryLock()) {
+            return;
+        }
+        try {
+            if (generation < 0) {
+                rebuildLocked();
+                return;
+            }
+
+            List<CatalogChange> changes = catalogChangeRepository
+                    .findAllByGenerationGreaterThanOrderByGeneration(generation,
+                            Limit.of(MAX_CHANGES_PER_SYNC + 1));
+            if (changes.isEmpty()) {
+                return;
+            }
+            // Generations are contiguous, a gap means the log was pruned past this node
+            if (changes.size() > MAX_CHANGES_PER_SYNC
+                    || changes.get(0).getGeneration() != generation + 1
+                    || changes.stream().anyMatch(CatalogChange::isFullReset)) {
+                rebuildLocked();
+                return;
+            }
+
+            Set<Long> productIds = changes.stream()
+                    .map(CatalogChange::getProductId)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+            if (!productIds.isEmpty()) {
+                reindex(productIds);
+                searcherManager.maybeRefreshBlocking();
+            }
+            generation = changes.get(changes.size() - 1).getGeneration();
+        } catch (IOException | RuntimeException e) {
+            log.error("Product search index sync failed: {}", e.getMessage(), e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    public void rebuild() {
+        syncLock.lock();
+        try {
+            rebuildLocked();
+        } catch (IOException | RuntimeException e) {
+            log.error("Product search index rebuild failed: {}", e.getMessage(), e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        sync();
+    }
+
+    private void rebuildLocked() throws IOException {
+        // Changes committed while loading are replayed by the next sync, reindexing is idempotent
+        final long currentGeneration = catalogChangeRepository.getCurrentGeneration();
+        writer.deleteAll();
+
+        long afterId = 0;
+        List<ProductDocumentView> products;
+        do {
+            products = productRepository.findDocumentViewsAfter(afterId, Limit.of(BATCH_SIZE));
+            index(products);
+            if (!products.isEmpty()) {
+                afterId = products.get(products.size() - 1).getId();
+            }
+        } while (products.size() == BATCH_SIZE);
+
+        writer.commit();
+        searcherManager.maybeRefreshBlocking();
+        generation = currentGeneration;
+        log.info("Product search index built: {} products at generation {}",
+                writer.getDocStats().numDocs, currentGeneration);
+    }
+
+    private void reindex(Set<Long> productIds) throws IOException {
+        List<ProductDocumentView> products = productRepository
+                .findAllDocumentViewsByIdIn(productIds);
+        Set<Long> existingIds = products.stream()
+                .map(ProductDocumentView::getId)
+                .collect(Collectors.toSet());
+
+        for (Long productId : productIds) {
+            if (!existingIds.contains(productId)) {
+                writer.deleteDocuments(new Term(ID, String.valueOf(productId)));
+            }
+        }
+        index(products);
+    }
+
+    private void index(List<ProductDocumentView> products) throws IOException {
+        if (products.isEmpty()) {
+            return;
+        }
+        Set<Long> productIds = products.stream()
+                .map(ProductDocumentView::getId)
+                .collect(Collectors.toSet());
+        Map<Long, List<ProductAttributeView>> attributes = attributeRepository
+                .findAllViewsByProductIdIn(productIds).stream()
+                .collect(Collectors.groupingBy(ProductAttributeView::getProductId));
+        Map<Long, List<Long>> categories = productRepository
+                .findAllCategoryViewsByProductIdIn(productIds).stream()
+                .collect(Collectors.groupingBy(ProductCategoryView::getProductId,
+                        Collectors.mapping(ProductCategoryView::getCategoryId,
+                                Collectors.toList())));
+
+        for (ProductDocumentView product : products) {
+            writer.updateDocument(new Term(ID, String.valueOf(product.getId())),
+                    toDocument(product,
+                            attributes.getOrDefault(product.getId(), List.of()),
+                            categories.getOrDefault(product.getId(), List.of())));
+        }
+    }
+
+    private Document toDocument(ProductDocumentView product,
+                                List<ProductAttributeView> attributes,
+                                Collection<Long> categoryIds) {
+        Document document = new Document();
+        document.add(new StringField(ID, String.valueOf(product.getId()), Field.Store.NO));
+        document.add(new NumericDocValuesField(ID, product.getId()));
+        document.add(new TextField(TITLE, product.getTitle(), Field.Store.NO));
+        document.add(new SortedDocValuesField(TITLE_SORT,
+                new BytesRef(product.getTitle().toLowerCase(Locale.ROOT))));
+        document.add(new TextField(ARTICLE, product.getArticle(), Field.Store.NO));
+        document.add(new TextField(DESCRIPTION, product.getDescription(), Field.Store.NO));
+
+        long price = toCents(product.getPrice());
+        document.add(new LongPoint(PRICE, price));
+        document.add(new NumericDocValuesField(PRICE, price));
+
+        categoryIds.forEach(categoryId -> document.add(
+                new StringField(CATEGORY, String.valueOf(categoryId), Field.Store.NO)));
+        attributes.forEach(attribute -> {
+            String value = attribute.getValue().toLowerCase(Locale.ROOT);
+            document.add(new StringField(ATTRIBUTE_PREFIX + attribute.getKey(), value,
+                    Field.Store.NO));
+            document.add(new TextField(ATTRIBUTE_VALUES, value, Field.Store.NO));
+            document.add(new SortedSetDocValuesField(ATTRIBUTE_FACET,
+                    new BytesRef(attribute.getKey() + ATTRIBUTE_SEPARATOR + value)));
+        });
+        return document;
+    }
+
+    static long toCents(BigDecimal price) {
+        return price.setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+    }
+
+    static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    @FunctionalInterface
+    public interface IndexSearch<T> {
+        T apply(IndexSearcher searcher) throws IOException;
+    }
+}
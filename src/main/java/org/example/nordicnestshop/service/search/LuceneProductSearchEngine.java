@@ -0,0 +1,404 @@
+package org.example.nordicnestshop.service.search;
+
+import static org.example.nordicnestshop.service.search.LuceneProductIndex.ARTICLE;
+import static org.example.nordicnestshop.service.search.LuceneProductIndex.ATTRIBUTE_FACET;
+import static org.example.nordicnestshop.service.search.LuceneProductIndex.ATTRIBUTE_PREFIX;
+import static org.example.nordicnestshop.service.search.LuceneProductIndex.ATTRIBUTE_SEPARATOR;
+import static org.example.nordicnestshop.service.search.LuceneProductIndex.ATTRIBUTE_VALUES;
+import static org.example.nordicnestshop.service.search.LuceneProductIndex.CATEGORY;
+import static org.example.nordicnestshop.service.search.LuceneProductIndex.DESCRIPTION;
+import static org.example.nordicnestshop.service.search.LuceneProductIndex.ID;
+import static org.example.nordicnestshop.service.search.LuceneProductIndex.PRICE;
+import static org.example.nordicnestshop.service.search.LuceneProductIndex.TITLE;
+import static org.example.nordicnestshop.service.search.LuceneProductIndex.TITLE_SORT;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.util.BytesRef;
+import org.example.nordicnestshop.exception.IncorrectArgumentException;
+import org.example.nordicnestshop.model.enums.CountMode;
+import org.example.nordicnestshop.model.enums.SearchMode;
+import org.example.nordicnestshop.repository.ProductRepository;
+import org.example.nordicnestshop.repository.projection.ProductCardView;
+import org.example.nordicnestshop.service.PriceStatisticsService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+@Service
+@Primary
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "search.engine", havingValue = "lucene")
+public class LuceneProductSearchEngine implements ProductSearchEngine {
+    private static final String CATEGORY_IDS = "categoryIds";
+    private static final String MIN_PRICE = "minPrice";
+    private static final String MAX_PRICE = "maxPrice";
+    private static final String SEARCH_TEXT = "searchText";
+    private static final int MAX_FUZZY_EDITS = 2;
+    private static final int FUZZY_PREFIX_LENGTH = 1;
+    private static final Map<String, SortField> SORT_FIELDS = Map.of(
+            "id", new SortField(ID, SortField.Type.LONG),
+            "price", new SortField(PRICE, SortField.Type.LONG),
+            "title", new SortField(TITLE_SORT, SortField.Type.STRING));
+
+    private final LuceneProductIndex productIndex;
+    private final ProductRepository productRepository;
+    private final PriceStatisticsService priceStatisticsService;
+    private final ProductFilterPlanner productFilterPlanner;
+    private final JpaProductSearchEngine jpaProductSearchEngine;
+
+    @Override
+    public ProductSearchResult search(ProductSearchRequest request) {
+        if (!productIndex.isBuilt()) {
+            return jpaProductSearchEngine.search(request);
+        }
+        Map<String, String> filters = new HashMap<>(request.filters());
+        boolean hasSearchText = filters.get(SEARCH_TEXT) != null;
+        Query query = getQuery(filters, request);
+        Pageable pageable = request.pageable();
+        org.apache.lucene.search.Sort sort = getSort(pageable.getSort(), hasSearchText);
+
+        productIndex.sync();
+        final long generation = productIndex.getGeneration();
+        SearchHits hits = productIndex.search(searcher -> {
+            HitsCollector collector = searcher.search(query, new HitsCollectorManager());
+            List<Long> productIds = request.keyset()
+                    ? getPageIdsAfter(searcher, query, sort, request.after(),
+                            pageable.getPageSize() + 1)
+                    : getPageIds(searcher, query, sort, pageable, collector.getTotal(),
+                            request.countMode() == CountMode.EXACT ? 0 : 1);
+            return new SearchHits(productIds, collector.getTotal(),
+                    collector.getAttributeFacets(), collector.getPriceCounts());
+        });
+
+        Map<Long, ProductCardView> products = productRepository
+                .findAllCardsByIdIn(hits.productIds()).stream()
+                .collect(Collectors.toMap(ProductCardView::id, Function.identity()));
+        List<ProductCardView> content = hits.productIds().stream()
+                .map(products::get)
+                .filter(Objects::nonNull)
+                .toList();
+        // Matches are counted anyway for the facets, so the estimate is the exact total
+        Slice<ProductCardView> page = request.keyset() || request.countMode() != CountMode.EXACT
+                ? toSlice(content, pageable)
+                : new PageImpl<>(content, pageable, hits.total());
+        return new ProductSearchResult(page, hits.attributeFacets(),
+                priceStatisticsService.getPriceStatistics(hits.priceCounts(),
+                        request.priceBuckets()),
+                request.countMode() == CountMode.ESTIMATE ? (long) hits.total() : null,
+                generation);
+    }
+
+    private Slice<ProductCardView> toSlice(List<ProductCardView> content, Pageable pageable) {
+        boolean hasNext = pageable.isPaged() && content.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content,
+                pageable, hasNext);
+    }
+
+    private List<Long> getPageIds(IndexSearcher searcher, Query query,
+                                  org.apache.lucene.search.Sort sort, Pageable pageable,
+                                  int total, int extraHits) throws IOException {
+        long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+        if (total == 0 || offset >= total) {
+            return List.of();
+        }
+        int limit = pageable.isPaged()
+                ? (int) Math.min(offset + pageable.getPageSize() + extraHits, total)
+                : total;
+        TopFieldDocs topDocs = searcher.search(query, limit, sort, false);
+        return getIds(searcher, Arrays.copyOfRange(topDocs.scoreDocs, (int) offset,
+                topDocs.scoreDocs.length));
+    }
+
+    private List<Long> getPageIdsAfter(IndexSearcher searcher, Query query,
+                                       org.apache.lucene.search.Sort sort,
+                                       ProductSearchCursor after, int limit)
+            throws IOException {
+        TopFieldDocs topDocs = after == null
+                ? searcher.search(query, limit, sort, false)
+                : searcher.searchAfter(toFieldDoc(searcher, sort, after), query, limit, sort,
+                        false);
+        return getIds(searcher, topDocs.scoreDocs);
+    }
+
+    // The cursor position as sort values, the last doc makes the cursor product itself excluded
+    private FieldDoc toFieldDoc(IndexSearcher searcher, org.apache.lucene.search.Sort sort,
+                                ProductSearchCursor after) {
+        Object[] fields = Arrays.stream(sort.getSort())
+                .map(sortField -> switch (sortField.getField()) {
+                    case PRICE -> LuceneProductIndex.toCents((BigDecimal) after.getKey());
+                    case TITLE_SORT -> new BytesRef(after.value().toLowerCase(Locale.ROOT));
+                    default -> after.id();
+                })
+                .toArray();
+        return new FieldDoc(searcher.getIndexReader().maxDoc() - 1, Float.NaN, fields);
+    }
+
+    private List<Long> getIds(IndexSearcher searcher, ScoreDoc[] scoreDocs) throws IOException {
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        List<Long> ids = new ArrayList<>();
+        for (ScoreDoc scoreDoc : scoreDocs) {
+            LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(scoreDoc.doc, leaves));
+            NumericDocValues idValues = DocValues.getNumeric(leaf.reader(), ID);
+            if (idValues.advanceExact(scoreDoc.doc - leaf.docBase)) {
+                ids.add(idValues.longValue());
+            }
+        }
+        return ids;
+    }
+
+    private Query getQuery(Map<String, String> filters, ProductSearchRequest request) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        // Category groups come from the shared plan, so they are looked up once per filters
+        ProductFilterPlan plan = productFilterPlanner.getPlan(request.filters(),
+                request.searchMode());
+        filters.remove(CATEGORY_IDS);
+        plan.categoryGroups().forEach(group -> builder.add(
+                new TermInSetQuery(CATEGORY, group.stream()
+                        .map(id -> new BytesRef(String.valueOf(id)))
+                        .toList()),
+                BooleanClause.Occur.FILTER));
+
+        String minPrice = filters.remove(MIN_PRICE);
+        String maxPrice = filters.remove(MAX_PRICE);
+        if (minPrice != null || maxPrice != null) {
+            builder.add(LongPoint.newRangeQuery(PRICE, toPriceBound(minPrice, Long.MIN_VALUE),
+                    toPriceBound(maxPrice, Long.MAX_VALUE)), BooleanClause.Occur.FILTER);
+        }
+
+        String searchText = filters.remove(SEARCH_TEXT);
+        if (searchText != null) {
+            analyze(searchText).forEach(token -> builder.add(plan.searchMode() == SearchMode.FUZZY
+                    ? getFuzzyTokenQuery(token)
+                    : getTokenQuery(token), BooleanClause.Occur.MUST));
+        }
+
+        filters.forEach((key, values) -> builder.add(
+                new TermInSetQuery(ATTRIBUTE_PREFIX + key,
+                        Arrays.stream(values.toLowerCase().split(","))
+                                .map(BytesRef::new)
+                                .toList()),
+                BooleanClause.Occur.FILTER));
+
+        BooleanQuery query = builder.build();
+        return query.clauses().isEmpty() ? new MatchAllDocsQuery() : query;
+    }
+
+    // Every word has to match as a prefix in some field, the same way the JPA search does
+    private Query getTokenQuery(String token) {
+        return new BooleanQuery.Builder()
+                .add(new BoostQuery(new PrefixQuery(new Term(TITLE, token)), 3f),
+                        BooleanClause.Occur.SHOULD)
+                .add(new BoostQuery(new PrefixQuery(new Term(ARTICLE, token)), 3f),
+                        BooleanClause.Occur.SHOULD)
+                .add(new BoostQuery(new PrefixQuery(new Term(ATTRIBUTE_VALUES, token)), 2f),
+                        BooleanClause.Occur.SHOULD)
+                .add(new PrefixQuery(new Term(DESCRIPTION, token)), BooleanClause.Occur.SHOULD)
+                .build();
+    }
+
+    private Query getFuzzyTokenQuery(String token) {
+        return new BooleanQuery.Builder()
+                .add(new FuzzyQuery(new Term(TITLE, token), MAX_FUZZY_EDITS,
+                        FUZZY_PREFIX_LENGTH), BooleanClause.Occur.SHOULD)
+                .add(new FuzzyQuery(new Term(ARTICLE, token), MAX_FUZZY_EDITS,
+                        FUZZY_PREFIX_LENGTH), BooleanClause.Occur.SHOULD)
+                .build();
+    }
+
+    private List<String> analyze(String text) {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream stream = productIndex.getAnalyzer().tokenStream(TITLE, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return tokens;
+    }
+
+    private org.apache.lucene.search.Sort getSort(Sort sort, boolean hasSearchText) {
+        SortField idSort = SORT_FIELDS.get("id");
+        if (sort.isUnsorted()) {
+            return hasSearchText
+                    ? new org.apache.lucene.search.Sort(SortField.FIELD_SCORE, idSort)
+                    : new org.apache.lucene.search.Sort(idSort);
+        }
+
+        List<SortField> sortFields = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            SortField sortField = SORT_FIELDS.get(order.getProperty());
+            if (sortField == null) {
+                throw new IncorrectArgumentException("Unsupported sort property: "
+                        + order.getProperty());
+            }
+            sortFields.add(new SortField(sortField.getField(), sortField.getType(),
+                    order.isDescending()));
+        }
+        sortFields.add(idSort);
+        return new org.apache.lucene.search.Sort(sortFields.toArray(new SortField[0]));
+    }
+
+    private long toPriceBound(String price, long defaultBound) {
+        if (price == null) {
+            return defaultBound;
+        }
+        try {
+            return LuceneProductIndex.toCents(BigDecimal.valueOf(Long.parseLong(price)));
+        } catch (NumberFormatException e) {
+            throw new IncorrectArgumentException("Incorrect input format. " + e.getMessage(), e);
+        }
+    }
+
+    private record SearchHits(List<Long> productIds,
+                              int total,
+                              Map<String, Map<String, Long>> attributeFacets,
+                              NavigableMap<BigDecimal, Long> priceCounts) {
+    }
+
+    /**
+     * Sums the counts of the collectors of all searched slices into one.
+     */
+    private static class HitsCollectorManager
+            implements CollectorManager<HitsCollector, HitsCollector> {
+        @Override
+        public HitsCollector newCollector() {
+            return new HitsCollector();
+        }
+
+        @Override
+        public HitsCollector reduce(Collection<HitsCollector> collectors) throws IOException {
+            HitsCollector merged = new HitsCollector();
+            for (HitsCollector collector : collectors) {
+                merged.add(collector);
+            }
+            return merged;
+        }
+    }
+
+    /**
+     * Counts every match together with its attribute values and prices, so facets and
+     * price statistics cover the whole result set and not only the returned page.
+     */
+    private static class HitsCollector extends SimpleCollector {
+        private final Map<String, Long> attributeCounts = new HashMap<>();
+        private final NavigableMap<BigDecimal, Long> priceCounts = new TreeMap<>();
+        private int total;
+        private NumericDocValues prices;
+        private SortedSetDocValues attributes;
+        private long[] ordinalCounts = new long[0];
+
+        @Override
+        protected void doSetNextReader(LeafReaderContext context) throws IOException {
+            flushOrdinalCounts();
+            prices = DocValues.getNumeric(context.reader(), PRICE);
+            attributes = DocValues.getSortedSet(context.reader(), ATTRIBUTE_FACET);
+            ordinalCounts = new long[Math.toIntExact(attributes.getValueCount())];
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+            total++;
+            if (prices.advanceExact(doc)) {
+                priceCounts.merge(LuceneProductIndex.fromCents(prices.longValue()), 1L,
+                        Long::sum);
+            }
+            if (attributes.advanceExact(doc)) {
+                for (int i = 0; i < attributes.docValueCount(); i++) {
+                    ordinalCounts[Math.toIntExact(attributes.nextOrd())]++;
+                }
+            }
+        }
+
+        @Override
+        public ScoreMode scoreMode() {
+            return ScoreMode.COMPLETE_NO_SCORES;
+        }
+
+        private void add(HitsCollector other) throws IOException {
+            other.flushOrdinalCounts();
+            total += other.total;
+            other.priceCounts.forEach((price, count) -> priceCounts.merge(price, count,
+                    Long::sum));
+            other.attributeCounts.forEach((attribute, count) -> attributeCounts.merge(attribute,
+                    count, Long::sum));
+        }
+
+        private int getTotal() {
+            return total;
+        }
+
+        private NavigableMap<BigDecimal, Long> getPriceCounts() {
+            return priceCounts;
+        }
+
+        private Map<String, Map<String, Long>> getAttributeFacets() throws IOException {
+            flushOrdinalCounts();
+            Map<String, Map<String, Long>> facets = new TreeMap<>();
+            attributeCounts.forEach((attribute, count) -> {
+                int separator = attribute.indexOf(ATTRIBUTE_SEPARATOR);
+                facets.computeIfAbsent(attribute.substring(0, separator), k -> new TreeMap<>())
+                        .put(attribute.substring(separator + 1), count);
+            });
+            return facets;
+        }
+
+        private void flushOrdinalCounts() throws IOException {
+            for (int ordinal = 0; ordinal < ordinalCounts.length; ordinal++) {
+                if (ordinalCounts[ordinal] > 0) {
+                    attributeCounts.merge(attributes.lookupOrd(ordinal).utf8ToString(),
+                            ordinalCounts[ordinal], Long::sum);
+                }
+            }
+            ordinalCounts = new long[0];
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.nordicnestshop.service.search;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import org.example.nordicnestshop.model.enums.SearchMode;
+import org.example.nordicnestshop.model.product.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Parsed and compiled search filters. Plans are immutable and shared between requests with
+ * the same normalized filters.
+ *
+ * @param filters normalized request filters the plan was compiled from
+ * @param specification price and search text filters, which only the database can apply
+ * @param categoryGroups requested categories grouped by type
+ * @param attributeFilters requested attribute values by key
+ * @param indexSpecification category and attribute filters for when the filter index
+ *                           is not available
+ */
+public record ProductFilterPlan(Map<String, String> filters,
+                                SearchMode searchMode,
+                                Specification<Product> specification,
+                                boolean hasDatabaseFilters,
+                                Collection<List<Long>> categoryGroups,
+                                Map<String, List<String>> attributeFilters,
+                                boolean hasIndexFilters,
+                                Specification<Product> indexSpecification) {
+}
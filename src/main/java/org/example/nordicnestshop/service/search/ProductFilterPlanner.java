@@ -0,0 +1,119 @@
+package org.example.nordicnestshop.service.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import org.example.nordicnestshop.event.CategoryChangedEvent;
+import org.example.nordicnestshop.exception.IncorrectArgumentException;
+import org.example.nordicnestshop.model.enums.SearchMode;
+import org.example.nordicnestshop.model.product.Product;
+import org.example.nordicnestshop.repository.specification.SpecificationProvider;
+import org.example.nordicnestshop.repository.specification.impl.AttributesSpecificationProvider;
+import org.example.nordicnestshop.repository.specification.impl.CategorySpecificationProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Compiles request filters into {@link ProductFilterPlan}s and caches them by the normalized
+ * filters, so repeated searches skip parsing, category lookups and specification building.
+ */
+@Component
+public class ProductFilterPlanner {
+    private static final String CATEGORY_IDS = "categoryIds";
+    private static final String SEARCH_TEXT = "searchText";
+    private static final String FUZZY_SEARCH_TEXT = "fuzzySearchText";
+
+    private final List<SpecificationProvider> specificationProviders;
+    private final CategorySpecificationProvider categorySpecificationProvider;
+    private final AttributesSpecificationProvider attributesSpecificationProvider;
+    private final Cache<PlanKey, ProductFilterPlan> plans;
+
+    public ProductFilterPlanner(List<SpecificationProvider> specificationProviders,
+                                CategorySpecificationProvider categorySpecificationProvider,
+                                AttributesSpecificationProvider attributesSpecificationProvider,
+                                MeterRegistry meterRegistry,
+                                @Value("${search.plan-cache.size:10000}") long size) {
+        this.specificationProviders = specificationProviders;
+        this.categorySpecificationProvider = categorySpecificationProvider;
+        this.attributesSpecificationProvider = attributesSpecificationProvider;
+        this.plans = Caffeine.newBuilder()
+                .maximumSize(size)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, plans, "productSearchPlan");
+    }
+
+    public ProductFilterPlan getPlan(Map<String, String> filters, SearchMode searchMode) {
+        return plans.get(new PlanKey(normalize(filters), searchMode), this::compile);
+    }
+
+    // Plans hold category groups by type, which a category change can move
+    @TransactionalEventListener
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        plans.invalidateAll();
+    }
+
+    private ProductFilterPlan compile(PlanKey key) {
+        Map<String, String> filters = new HashMap<>(key.filters());
+        if (key.searchMode() == SearchMode.FUZZY && filters.get(SEARCH_TEXT) != null) {
+            filters.put(FUZZY_SEARCH_TEXT, filters.remove(SEARCH_TEXT));
+        }
+        String categoryIds = filters.remove(CATEGORY_IDS);
+
+        try {
+            Specification<Product> specification = Specification.where(null);
+            boolean hasDatabaseFilters = false;
+            for (SpecificationProvider specificationProvider : specificationProviders) {
+                String value = filters.remove(specificationProvider.getName());
+                if (value != null) {
+                    specification = specification.and(specificationProvider
+                            .getSpecification(value));
+                    hasDatabaseFilters = true;
+                }
+            }
+
+            List<List<Long>> categoryGroups = categoryIds == null
+                    ? List.of()
+                    : categorySpecificationProvider.getCategoryGroups(categoryIds);
+            Map<String, List<String>> attributeFilters = filters.entrySet().stream()
+                    .collect(Collectors.toUnmodifiableMap(
+                            Map.Entry::getKey,
+                            entry -> List.of(entry.getValue().split(","))));
+            return new ProductFilterPlan(key.filters(), key.searchMode(), specification,
+                    hasDatabaseFilters, categoryGroups, attributeFilters,
+                    categoryIds != null || !attributeFilters.isEmpty(),
+                    categorySpecificationProvider.getSpecification(categoryGroups)
+                            .and(attributesSpecificationProvider
+                                    .getSpecification(attributeFilters)));
+        } catch (NumberFormatException e) {
+            throw new IncorrectArgumentException("Incorrect input format. " + e.getMessage(), e);
+        }
+    }
+
+    // Filter values are case insensitive lists, so their order and case do not matter
+    private Map<String, String> normalize(Map<String, String> filters) {
+        return filters.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey,
+                        entry -> entry.getKey().equals(SEARCH_TEXT)
+                                ? entry.getValue().trim().toLowerCase(Locale.ROOT)
+                                : Arrays.stream(entry.getValue().split(","))
+                                        .map(value -> value.trim().toLowerCase(Locale.ROOT))
+                                        .sorted()
+                                        .collect(Collectors.joining(",")),
+                        (first, second) -> first,
+                        TreeMap::new));
+    }
+
+    private record PlanKey(Map<String, String> filters, SearchMode searchMode) {
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.nordicnestshop.service.search;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.Set;
+import org.example.nordicnestshop.exception.IncorrectArgumentException;
+import org.example.nordicnestshop.model.enums.SearchMode;
+import org.example.nordicnestshop.repository.projection.ProductCardView;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Position after the last product of a page: its sort key and id, plus the sort order and
+ * search mode the next page has to continue with.
+ */
+public record ProductSearchCursor(String property,
+                                  Sort.Direction direction,
+                                  String value,
+                                  Long id,
+                                  SearchMode searchMode) {
+    public static final String ID = "id";
+    public static final String PRICE = "price";
+    public static final String TITLE = "title";
+
+    private static final Set<String> PROPERTIES = Set.of(ID, PRICE, TITLE);
+    private static final String SEPARATOR = "|";
+
+    public Sort getSort() {
+        return toSort(new Sort.Order(direction, property));
+    }
+
+    public Object getKey() {
+        return switch (property) {
+            case PRICE -> new BigDecimal(value);
+            case TITLE -> value;
+            default -> Long.valueOf(value);
+        };
+    }
+
+    public String encode() {
+        String cursor = String.join(SEPARATOR, property, direction.name(), String.valueOf(id),
+                searchMode.name(), value);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductSearchCursor decode(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor),
+                    StandardCharsets.UTF_8).split("\\" + SEPARATOR, 5);
+            if (parts.length != 5 || !PROPERTIES.contains(parts[0])) {
+                throw new IncorrectArgumentException("Invalid cursor: " + cursor);
+            }
+            ProductSearchCursor searchCursor = new ProductSearchCursor(parts[0],
+                    Sort.Direction.valueOf(parts[1]), parts[4], Long.parseLong(parts[2]),
+                    SearchMode.valueOf(parts[3]));
+            searchCursor.getKey();
+            return searchCursor;
+        } catch (IllegalArgumentException e) {
+            throw new IncorrectArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    public static ProductSearchCursor after(ProductCardView product, Sort.Order order,
+                                            SearchMode searchMode) {
+        String value = switch (order.getProperty()) {
+            case PRICE -> product.price().toPlainString();
+            case TITLE -> product.title();
+            default -> String.valueOf(product.id());
+        };
+        return new ProductSearchCursor(order.getProperty(), order.getDirection(), value,
+                product.id(), searchMode);
+    }
+
+    /**
+     * Returns the order a cursor can continue, a single sort key out of id, price and title.
+     */
+    public static Optional<Sort.Order> getKeysetOrder(Sort sort) {
+        return sort.stream().count() == 1 && PROPERTIES.contains(sort.iterator().next()
+                .getProperty())
+                ? Optional.of(sort.iterator().next())
+                : Optional.empty();
+    }
+
+    /**
+     * Completes the order with the id in the same direction, so the sort is total and the
+     * (key, id) pair can be compared as a row.
+     */
+    public static Sort toSort(Sort.Order order) {
+        Sort sort = Sort.by(order);
+        return order.getProperty().equals(ID) ? sort
+                : sort.and(Sort.by(order.getDirection(), ID));
+    }
+}
@@ -0,0 +1,5 @@
+package org.example.nordicnestshop.service.search;
+
+public interface ProductSearchEngine {
+    ProductSearchResult search(ProductSearchRequest request);
+}
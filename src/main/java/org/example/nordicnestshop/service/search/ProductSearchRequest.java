@@ -0,0 +1,29 @@
+package org.example.nordicnestshop.service.search;
+
+import java.util.Map;
+import org.example.nordicnestshop.model.enums.CountMode;
+import org.example.nordicnestshop.model.enums.SearchMode;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Product search over request filters (categoryIds, minPrice, maxPrice, searchText and
+ * attribute key-value pairs) without the paging parameters. A keyset search loads the page
+ * after the cursor position, or the first one without a cursor, and skips the total count
+ * the same way as an offset search without an exact count mode.
+ */
+public record ProductSearchRequest(Map<String, String> filters,
+                                   SearchMode searchMode,
+                                   int priceBuckets,
+                                   Pageable pageable,
+                                   CountMode countMode,
+                                   boolean keyset,
+                                   ProductSearchCursor after) {
+    public ProductSearchRequest {
+        filters = Map.copyOf(filters);
+    }
+
+    public ProductSearchRequest withSearchMode(SearchMode searchMode) {
+        return new ProductSearchRequest(filters, searchMode, priceBuckets, pageable, countMode,
+                keyset, after);
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.nordicnestshop.service.search;
+
+import java.util.Map;
+import org.example.nordicnestshop.dto.product.PriceStatisticsDto;
+import org.example.nordicnestshop.repository.projection.ProductCardView;
+import org.springframework.data.domain.Slice;
+
+/**
+ * One page of search results.
+ *
+ * @param generation catalog generation of the index the search answered from, or
+ *                   {@link Long#MAX_VALUE} when only the database was queried
+ */
+public record ProductSearchResult(Slice<ProductCardView> products,
+                                  Map<String, Map<String, Long>> attributeFacets,
+                                  PriceStatisticsDto priceStatistics,
+                                  Long estimatedTotal,
+                                  long generation) {
+}
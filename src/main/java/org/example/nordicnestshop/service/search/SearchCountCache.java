@@ -0,0 +1,40 @@
+package org.example.nordicnestshop.service.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import org.example.nordicnestshop.model.enums.SearchMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Result counts per filter plan for approximate totals, an entry may lag behind
+ * catalog changes for up to the configured time to live.
+ */
+@Component
+public class SearchCountCache {
+    private final Cache<CountKey, Long> counts;
+
+    public SearchCountCache(MeterRegistry meterRegistry,
+                            @Value("${search.count-cache.ttl:PT1M}") Duration ttl,
+                            @Value("${search.count-cache.size:10000}") long size) {
+        counts = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(size)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, counts, "productSearchCount");
+    }
+
+    public long get(ProductFilterPlan plan, LongSupplier count) {
+        return counts.get(new CountKey(plan.filters(), plan.searchMode()),
+                key -> count.getAsLong());
+    }
+
+    private record CountKey(Map<String, String> filters, SearchMode searchMode) {
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.nordicnestshop.service.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.example.nordicnestshop.dto.product.ProductSearchResponseDto;
+import org.example.nordicnestshop.repository.CatalogChangeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Search responses by canonical request and catalog generation. Every catalog change moves
+ * the generation, so entries of older generations are never read again and age out. A
+ * response is only cached when the index it came from had caught up with the generation,
+ * an index still syncing answers from an older catalog.
+ */
+@Component
+public class SearchResultCache {
+    private static final String CURSOR = "cursor";
+    private static final String SEARCH_TEXT = "searchText";
+
+    private final CatalogChangeRepository catalogChangeRepository;
+    private final Cache<SearchKey, ProductSearchResponseDto> responses;
+    private final boolean enabled;
+
+    public SearchResultCache(CatalogChangeRepository catalogChangeRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${search.result-cache.enabled:true}") boolean enabled,
+                             @Value("${search.result-cache.ttl:PT5M}") Duration ttl,
+                             @Value("${search.result-cache.max-weight:100000}") long maxWeight) {
+        this.catalogChangeRepository = catalogChangeRepository;
+        this.enabled = enabled;
+        this.responses = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumWeight(maxWeight)
+                .weigher((SearchKey key, ProductSearchResponseDto response) ->
+                        response.getProducts().getNumberOfElements() + 1)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "productSearch");
+    }
+
+    public ProductSearchResponseDto get(Map<String, String> params, Pageable pageable,
+                                        Supplier<SearchAnswer> search) {
+        if (!enabled) {
+            return search.get().response();
+        }
+        long generation = catalogChangeRepository.getCurrentGeneration();
+        SearchKey key = new SearchKey(canonicalize(params), pageable.isPaged()
+                ? pageable.getPageNumber() : -1, pageable.isPaged() ? pageable.getPageSize() : -1,
+                pageable.getSort().toString(), generation);
+        ProductSearchResponseDto cached = responses.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Searched outside of the cache, a slow search must not hold up other keys
+        SearchAnswer answer = search.get();
+        if (answer.generation() >= generation) {
+            responses.put(key, answer.response());
+        }
+        return answer.response();
+    }
+
+    // Filter values are sets like in ProductFilterPlanner, so their order does not split entries
+    private Map<String, String> canonicalize(Map<String, String> params) {
+        return params.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey,
+                        entry -> canonicalize(entry.getKey(), entry.getValue()),
+                        (first, second) -> first,
+                        TreeMap::new));
+    }
+
+    private String canonicalize(String param, String value) {
+        if (param.equals(CURSOR)) {
+            return value;
+        }
+        if (param.equals(SEARCH_TEXT)) {
+            return value.trim().toLowerCase(Locale.ROOT);
+        }
+        return Arrays.stream(value.split(","))
+                .map(part -> part.trim().toLowerCase(Locale.ROOT))
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+
+    /**
+     * A search response and the catalog generation it was answered at.
+     */
+    public record SearchAnswer(ProductSearchResponseDto response, long generation) {
+    }
+
+    private record SearchKey(Map<String, String> params,
+                             int pageNumber,
+                             int pageSize,
+                             String sort,
+                             long generation) {
+    }
+}
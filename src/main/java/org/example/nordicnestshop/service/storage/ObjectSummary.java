@@ -0,0 +1,6 @@
+package org.example.nordicnestshop.service.storage;
+
+import java.time.Instant;
+
+public record ObjectSummary(String key, Instant lastModified) {
+}
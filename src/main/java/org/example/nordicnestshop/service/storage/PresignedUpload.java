@@ -0,0 +1,10 @@
+package org.example.nordicnestshop.service.storage;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * A signed PUT request, the client has to send exactly the given headers.
+ */
+public record PresignedUpload(String url, Map<String, String> headers, Instant expiresAt) {
+}
@@ -0,0 +1,42 @@
+package org.example.nordicnestshop.service.storage;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/**
+ * Object store the images live in. Keys are relative paths, urls are what clients fetch the
+ * objects from and what the database references.
+ */
+public interface StorageService {
+    CompletableFuture<String> uploadFile(String key, byte[] content, String contentType);
+
+    CompletableFuture<Boolean> exists(String key);
+
+    CompletableFuture<Optional<StoredObject>> describe(String key);
+
+    CompletableFuture<byte[]> download(String key);
+
+    PresignedUpload presignUpload(String key, String contentType, long contentLength,
+                                  Duration expiration);
+
+    /**
+     * Lists all stored objects page by page. Only one page is held at a time, so the number of
+     * objects does not bound memory. Listing stops early once the handler returns false.
+     */
+    void forEachFilePage(int pageSize, Predicate<List<ObjectSummary>> pageHandler);
+
+    String getUrl(String key);
+
+    CompletableFuture<Void> deleteFile(String url);
+
+    /**
+     * Deletes the objects in as few requests as the store allows. Completes with the urls that
+     * could not be deleted mapped to the reason, an empty map when all of them are gone.
+     */
+    CompletableFuture<Map<String, String>> deleteFiles(Collection<String> urls);
+}
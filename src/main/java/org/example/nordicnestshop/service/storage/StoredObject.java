@@ -0,0 +1,4 @@
+package org.example.nordicnestshop.service.storage;
+
+public record StoredObject(long size, String contentType) {
+}
@@ -0,0 +1,345 @@
+package org.example.nordicnestshop.service.storage.local;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import lombok.extern.log4j.Log4j2;
+import org.example.nordicnestshop.exception.ElementNotFoundException;
+import org.example.nordicnestshop.exception.IncorrectArgumentException;
+import org.example.nordicnestshop.service.storage.ObjectSummary;
+import org.example.nordicnestshop.service.storage.PresignedUpload;
+import org.example.nordicnestshop.service.storage.StorageService;
+import org.example.nordicnestshop.service.storage.StoredObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authorization.AuthorizationDeniedException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps objects as files below a root directory and serves them from the application, for single
+ * node deployments and offline tests. Files are written to a temporary file next to the target
+ * and renamed into place, so readers never see a partial object.
+ */
+@Service
+@Log4j2
+@ConditionalOnProperty(name = "storage.type", havingValue = "local")
+public class LocalStorageService implements StorageService {
+    private static final String TEMP_PREFIX = ".";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String SIGNATURE_ALGORITHM = "HmacSHA256";
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+    private static final long TRANSFER_CHUNK = 1024 * 1024;
+    private static final int SIGNATURE_LENGTH = 12;
+    private static final byte[] JPEG_SIGNATURE = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G'};
+    private static final byte[] RIFF_SIGNATURE = {'R', 'I', 'F', 'F'};
+    private static final byte[] WEBP_SIGNATURE = {'W', 'E', 'B', 'P'};
+
+    private final Path root;
+    private final String publicUrl;
+    private final SecretKeySpec signingKey;
+    private final ExecutorService blockingIoExecutor;
+
+    public LocalStorageService(@Value("${storage.local.root:storage}") Path root,
+                               @Value("${storage.local.public-url}") String publicUrl,
+                               @Value("${storage.local.signing-key:${jwt.secret}}")
+                               String signingKey,
+                               ExecutorService blockingIoExecutor) {
+        this.root = root.toAbsolutePath().normalize();
+        this.publicUrl = publicUrl;
+        this.signingKey = new SecretKeySpec(signingKey.getBytes(StandardCharsets.UTF_8),
+                SIGNATURE_ALGORITHM);
+        this.blockingIoExecutor = blockingIoExecutor;
+        try {
+            Files.createDirectories(this.root);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't create storage directory " + this.root, e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> uploadFile(String key, byte[] content, String contentType) {
+        Path target = resolve(key);
+        return CompletableFuture.supplyAsync(() -> {
+            write(target, Channels.newChannel(new ByteArrayInputStream(content)),
+                    content.length);
+            log.info("File stored successfully: {}", key);
+            return getUrl(key);
+        }, blockingIoExecutor);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> exists(String key) {
+        Path path = resolve(key);
+        return CompletableFuture.supplyAsync(() -> Files.isRegularFile(path), blockingIoExecutor);
+    }
+
+    @Override
+    public CompletableFuture<Optional<StoredObject>> describe(String key) {
+        Path path = resolve(key);
+        return CompletableFuture.supplyAsync(() -> {
+            if (!Files.isRegularFile(path)) {
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(new StoredObject(Files.size(path), getContentType(path)));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read file " + key, e);
+            }
+        }, blockingIoExecutor);
+    }
+
+    @Override
+    public CompletableFuture<byte[]> download(String key) {
+        Path path = resolve(key);
+        return CompletableFuture.supplyAsync(() -> {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(channel.size()));
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        throw new IOException("File was truncated while reading");
+                    }
+                }
+                return buffer.array();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read file " + key, e);
+            }
+        }, blockingIoExecutor);
+    }
+
+    // The url is signed like an S3 presigned url and accepted by receiveUpload
+    @Override
+    public PresignedUpload presignUpload(String key, String contentType, long contentLength,
+                                         Duration expiration) {
+        resolve(key);
+        Instant expiresAt = Instant.now().plus(expiration);
+        String signature = sign(key, contentType, contentLength, expiresAt.getEpochSecond());
+        String url = getUrl(key) + "?expires=" + expiresAt.getEpochSecond()
+                + "&signature=" + signature;
+        return new PresignedUpload(url, Map.of(HttpHeaders.CONTENT_TYPE, contentType),
+                expiresAt);
+    }
+
+    @Override
+    public void forEachFilePage(int pageSize, Predicate<List<ObjectSummary>> pageHandler) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            Iterator<Path> files = paths
+                    .filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().startsWith(TEMP_PREFIX))
+                    .iterator();
+            List<ObjectSummary> page = new ArrayList<>(pageSize);
+            while (files.hasNext()) {
+                Path path = files.next();
+                page.add(new ObjectSummary(toKey(path),
+                        Files.getLastModifiedTime(path).toInstant()));
+                if (page.size() == pageSize) {
+                    if (!pageHandler.test(page)) {
+                        return;
+                    }
+                    page = new ArrayList<>(pageSize);
+                }
+            }
+            if (!page.isEmpty()) {
+                pageHandler.test(page);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list storage directory", e);
+        }
+    }
+
+    @Override
+    public String getUrl(String key) {
+        return publicUrl + "/" + key;
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteFile(String url) {
+        Path path = resolve(extractKey(url));
+        return CompletableFuture.runAsync(() -> {
+            try {
+                Files.deleteIfExists(path);
+                log.info("File deleted successfully: {}", url);
+            } catch (IOException e) {
+                log.error("Failed to delete file: {}", e.getMessage(), e);
+                throw new UncheckedIOException("Failed to delete file", e);
+            }
+        }, blockingIoExecutor);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, String>> deleteFiles(Collection<String> urls) {
+        return CompletableFuture.supplyAsync(() -> {
+            Map<String, String> failures = new ConcurrentHashMap<>();
+            for (String url : urls) {
+                try {
+                    Files.deleteIfExists(resolve(extractKey(url)));
+                } catch (IncorrectArgumentException e) {
+                    // Not a file of this store, nothing to delete
+                    log.warn("Skipping deletion of {}: {}", url, e.getMessage());
+                } catch (IOException e) {
+                    failures.put(url, String.valueOf(e.getMessage()));
+                }
+            }
+            log.info("Deleted {} of {} files", urls.size() - failures.size(), urls.size());
+            return failures;
+        }, blockingIoExecutor);
+    }
+
+    /**
+     * Stores the body of a PUT to a url from presignUpload. The signature covers the key,
+     * content type, length and expiry, so none of them can be changed by the client.
+     */
+    public void receiveUpload(String key, String contentType, long contentLength, long expires,
+                              String signature, InputStream body) {
+        String expected = sign(key, contentType, contentLength, expires);
+        if (!MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+                String.valueOf(signature).getBytes(StandardCharsets.UTF_8))) {
+            throw new AuthorizationDeniedException("Invalid upload signature");
+        }
+        if (Instant.now().getEpochSecond() > expires) {
+            throw new AuthorizationDeniedException("Upload url has expired");
+        }
+        write(resolve(key), Channels.newChannel(body), contentLength);
+    }
+
+    public Path getFile(String key) {
+        Path path = resolve(key);
+        if (!Files.isRegularFile(path)) {
+            throw new ElementNotFoundException("Can't find file: " + key);
+        }
+        return path;
+    }
+
+    // Only images are stored, their type is read from the file signature
+    public String getContentType(Path path) {
+        byte[] header = new byte[SIGNATURE_LENGTH];
+        int read;
+        try (InputStream input = Files.newInputStream(path)) {
+            read = input.readNBytes(header, 0, header.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read file " + path, e);
+        }
+        if (matches(header, read, 0, JPEG_SIGNATURE)) {
+            return "image/jpeg";
+        }
+        if (matches(header, read, 0, PNG_SIGNATURE)) {
+            return "image/png";
+        }
+        if (matches(header, read, 0, RIFF_SIGNATURE) && matches(header, read, 8, WEBP_SIGNATURE)) {
+            return "image/webp";
+        }
+        return DEFAULT_CONTENT_TYPE;
+    }
+
+    private boolean matches(byte[] header, int length, int offset, byte[] signature) {
+        return length >= offset + signature.length && Arrays.equals(header, offset,
+                offset + signature.length, signature, 0, signature.length);
+    }
+
+    // Nothing is renamed into place unless exactly the expected number of bytes arrived
+    private void write(Path target, ReadableByteChannel source, long expectedBytes) {
+        Path temp = null;
+        try {
+            Files.createDirectories(target.getParent());
+            temp = Files.createTempFile(target.getParent(), TEMP_PREFIX, TEMP_SUFFIX);
+            long written = 0;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                long transferred;
+                while ((transferred = channel.transferFrom(source, written, TRANSFER_CHUNK)) > 0) {
+                    written += transferred;
+                    if (written > expectedBytes) {
+                        break;
+                    }
+                }
+                channel.force(true);
+            }
+            if (written != expectedBytes) {
+                throw new IncorrectArgumentException("Received " + written + " bytes, "
+                        + expectedBytes + " were expected.");
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            temp = null;
+        } catch (IOException e) {
+            log.error("File write failed: {}", e.getMessage(), e);
+            throw new UncheckedIOException("Failed to write file", e);
+        } finally {
+            if (temp != null) {
+                deleteQuietly(temp);
+            }
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    // Keys never leave the root directory and never name temporary files
+    private Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root) || path.equals(root)
+                || path.getFileName().toString().startsWith(TEMP_PREFIX)) {
+            throw new IncorrectArgumentException("Invalid storage key: " + key);
+        }
+        return path;
+    }
+
+    private String toKey(Path path) {
+        return root.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+    }
+
+    private String extractKey(String url) {
+        if (url == null || !url.startsWith(publicUrl + "/")) {
+            throw new IncorrectArgumentException("Invalid storage url format");
+        }
+        return url.substring(publicUrl.length() + 1);
+    }
+
+    private String sign(String key, String contentType, long contentLength, long expires) {
+        try {
+            Mac mac = Mac.getInstance(SIGNATURE_ALGORITHM);
+            mac.init(signingKey);
+            byte[] digest = mac.doFinal(String.join("\n", key, contentType,
+                    Long.toString(contentLength), Long.toString(expires))
+                    .getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
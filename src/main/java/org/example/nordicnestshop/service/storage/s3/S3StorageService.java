@@ -0,0 +1,322 @@
+package org.example.nordicnestshop.service.storage.s3;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.example.nordicnestshop.exception.IncorrectArgumentException;
+import org.example.nordicnestshop.service.concurrency.ConcurrencyLimiter;
+import org.example.nordicnestshop.service.storage.ObjectSummary;
+import org.example.nordicnestshop.service.storage.PresignedUpload;
+import org.example.nordicnestshop.service.storage.StorageService;
+import org.example.nordicnestshop.service.storage.StoredObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+
+@Service
+@Log4j2
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "storage.type", havingValue = "s3", matchIfMissing = true)
+public class S3StorageService implements StorageService {
+    private static final Pattern S3_PATTERN = Pattern.compile("https://([^.]+)\\.s3\\.amazonaws\\.com/(.+)");
+    private static final int KEY_INDEX = 2;
+    // Upper limit of a single DeleteObjects request
+    private static final int MAX_DELETE_BATCH_SIZE = 1000;
+
+    private final S3AsyncClient s3AsyncClient;
+    private final S3Presigner s3Presigner;
+    private final ConcurrencyLimiter s3ConcurrencyLimiter;
+
+    @Value("${aws.s3.bucket}")
+    private String bucketName;
+
+    // Base of the object URLs when the bucket is not served from s3.amazonaws.com
+    @Value("${aws.s3.public-url:}")
+    private String publicUrl;
+
+    @Override
+    public CompletableFuture<String> uploadFile(String key, byte[] content, String contentType) {
+        log.info("Starting file upload: {}", key);
+
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put("company", "Nordic");
+        metadata.put("environment", "development");
+
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .metadata(metadata)
+                .contentType(contentType)
+                .contentDisposition("inline")
+                .build();
+        // Bodies above the multipart threshold are sent by the client as parallel parts
+        AsyncRequestBody requestBody = AsyncRequestBody.fromBytesUnsafe(content);
+
+        return s3ConcurrencyLimiter
+                .callAsync(() -> s3AsyncClient.putObject(putObjectRequest, requestBody))
+                .handle((response, error) -> {
+                    if (error != null) {
+                        Throwable cause = unwrap(error);
+                        log.error("File upload failed: {}", cause.getMessage(), cause);
+                        throw new RuntimeException("Failed to upload file to S3", cause);
+                    }
+                    String fileUrl = getUrl(key);
+                    log.info("File uploaded successfully: {}", fileUrl);
+                    return fileUrl;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> exists(String key) {
+        return head(key)
+                .handle((response, error) -> {
+                    if (error == null) {
+                        return true;
+                    }
+                    Throwable cause = unwrap(error);
+                    if (!isNotFound(cause)) {
+                        // Uploading again is always safe, the key is derived from the content
+                        log.warn("Failed to check file in S3: {}", cause.getMessage());
+                    }
+                    return false;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Optional<StoredObject>> describe(String key) {
+        return head(key)
+                .handle((response, error) -> {
+                    if (error == null) {
+                        return Optional.of(new StoredObject(response.contentLength(),
+                                response.contentType()));
+                    }
+                    Throwable cause = unwrap(error);
+                    if (isNotFound(cause)) {
+                        return Optional.empty();
+                    }
+                    log.error("Failed to check file in S3: {}", cause.getMessage(), cause);
+                    throw new RuntimeException("Failed to check file in S3", cause);
+                });
+    }
+
+    @Override
+    public CompletableFuture<byte[]> download(String key) {
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build();
+
+        return s3ConcurrencyLimiter
+                .callAsync(() -> s3AsyncClient.getObject(getObjectRequest,
+                        AsyncResponseTransformer.toBytes()))
+                .handle((response, error) -> {
+                    if (error != null) {
+                        Throwable cause = unwrap(error);
+                        log.error("File download failed: {}", cause.getMessage(), cause);
+                        throw new RuntimeException("Failed to download file from S3", cause);
+                    }
+                    return response.asByteArrayUnsafe();
+                });
+    }
+
+    @Override
+    public PresignedUpload presignUpload(String key, String contentType, long contentLength,
+                                         Duration expiration) {
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .contentLength(contentLength)
+                .build();
+
+        PresignedPutObjectRequest presignedRequest = s3Presigner.presignPutObject(
+                PutObjectPresignRequest.builder()
+                        .signatureDuration(expiration)
+                        .putObjectRequest(putObjectRequest)
+                        .build());
+
+        // The client sets Host from the url itself
+        Map<String, String> headers = new HashMap<>();
+        presignedRequest.signedHeaders().forEach((name, values) -> {
+            if (!HttpHeaders.HOST.equalsIgnoreCase(name)) {
+                headers.put(name, String.join(",", values));
+            }
+        });
+        return new PresignedUpload(presignedRequest.url().toString(), headers,
+                presignedRequest.expiration());
+    }
+
+    @Override
+    public void forEachFilePage(int pageSize, Predicate<List<ObjectSummary>> pageHandler) {
+        String continuationToken = null;
+        boolean proceed;
+        do {
+            ListObjectsV2Request listObjectsRequest = ListObjectsV2Request.builder()
+                    .bucket(bucketName)
+                    .maxKeys(pageSize)
+                    .continuationToken(continuationToken)
+                    .build();
+            ListObjectsV2Response response = s3ConcurrencyLimiter
+                    .callAsync(() -> s3AsyncClient.listObjectsV2(listObjectsRequest))
+                    .join();
+            proceed = pageHandler.test(response.contents().stream()
+                    .map(object -> new ObjectSummary(object.key(), object.lastModified()))
+                    .toList());
+            continuationToken = response.nextContinuationToken();
+        } while (proceed && continuationToken != null);
+    }
+
+    @Override
+    public String getUrl(String key) {
+        if (StringUtils.hasText(publicUrl)) {
+            return publicUrl + "/" + key;
+        }
+        return String.format("https://%s.s3.amazonaws.com/%s", bucketName, key);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteFile(String url) {
+        log.info("Starting file deletion: {}", url);
+
+        DeleteObjectRequest deleteObjectRequest = DeleteObjectRequest.builder()
+                .bucket(bucketName)
+                .key(extractKey(url))
+                .build();
+
+        return s3ConcurrencyLimiter
+                .callAsync(() -> s3AsyncClient.deleteObject(deleteObjectRequest))
+                .handle((response, error) -> {
+                    if (error != null) {
+                        Throwable cause = unwrap(error);
+                        String message = cause instanceof S3Exception s3Exception
+                                ? s3Exception.awsErrorDetails().errorMessage()
+                                : cause.getMessage();
+                        log.error("Failed to delete file: {}", message, cause);
+                        throw new RuntimeException("Failed to delete file", cause);
+                    }
+                    log.info("File deleted successfully from S3: {}", url);
+                    return null;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Map<String, String>> deleteFiles(Collection<String> urls) {
+        Map<String, String> failures = new ConcurrentHashMap<>();
+        // Earlier public urls of an object share its key, a failure is reported for all of them
+        Map<String, List<String>> urlsByKey = new LinkedHashMap<>();
+        urls.forEach(url -> {
+            try {
+                urlsByKey.computeIfAbsent(extractKey(url), key -> new ArrayList<>()).add(url);
+            } catch (IncorrectArgumentException e) {
+                // Not an object of this bucket, nothing to delete
+                log.warn("Skipping deletion of {}: {}", url, e.getMessage());
+            }
+        });
+
+        List<ObjectIdentifier> objects = urlsByKey.keySet().stream()
+                .map(key -> ObjectIdentifier.builder().key(key).build())
+                .toList();
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int from = 0; from < objects.size(); from += MAX_DELETE_BATCH_SIZE) {
+            List<ObjectIdentifier> batch = objects.subList(from,
+                    Math.min(from + MAX_DELETE_BATCH_SIZE, objects.size()));
+            batches.add(deleteBatch(batch, urlsByKey, failures));
+        }
+        return CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> failures);
+    }
+
+    // Quiet mode, the response only lists the keys that failed
+    private CompletableFuture<Void> deleteBatch(List<ObjectIdentifier> objects,
+                                                Map<String, List<String>> urlsByKey,
+                                                Map<String, String> failures) {
+        DeleteObjectsRequest deleteObjectsRequest = DeleteObjectsRequest.builder()
+                .bucket(bucketName)
+                .delete(Delete.builder().objects(objects).quiet(true).build())
+                .build();
+
+        return s3ConcurrencyLimiter
+                .callAsync(() -> s3AsyncClient.deleteObjects(deleteObjectsRequest))
+                .handle((response, error) -> {
+                    if (error != null) {
+                        Throwable cause = unwrap(error);
+                        log.error("Failed to delete {} files: {}", objects.size(),
+                                cause.getMessage(), cause);
+                        objects.forEach(object -> urlsByKey.get(object.key()).forEach(url ->
+                                failures.put(url, String.valueOf(cause.getMessage()))));
+                        return null;
+                    }
+                    response.errors().forEach(s3Error -> urlsByKey.get(s3Error.key())
+                            .forEach(url -> failures.put(url,
+                                    s3Error.code() + ": " + s3Error.message())));
+                    log.info("Deleted {} of {} files from S3",
+                            objects.size() - response.errors().size(), objects.size());
+                    return null;
+                });
+    }
+
+    private String extractKey(String url) {
+        if (StringUtils.hasText(publicUrl) && url.startsWith(publicUrl + "/")) {
+            return url.substring(publicUrl.length() + 1);
+        }
+        Matcher matcher = S3_PATTERN.matcher(url);
+        if (!matcher.matches()) {
+            log.error("Invalid S3 URL format: {}", url);
+            throw new IncorrectArgumentException("Invalid S3 URL format");
+        }
+        return matcher.group(KEY_INDEX);
+    }
+
+    private CompletableFuture<HeadObjectResponse> head(String key) {
+        HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build();
+
+        return s3ConcurrencyLimiter.callAsync(() -> s3AsyncClient.headObject(headObjectRequest));
+    }
+
+    private boolean isNotFound(Throwable error) {
+        return error instanceof S3Exception s3Exception
+                && s3Exception.statusCode() == HttpStatus.NOT_FOUND.value();
+    }
+
+    private Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null
+                ? error.getCause()
+                : error;
+    }
+}
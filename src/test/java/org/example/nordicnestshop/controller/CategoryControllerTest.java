@@ -10,10 +10,12 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.concurrent.CompletableFuture;
 import org.example.nordicnestshop.dto.category.CategoryDto;
 import org.example.nordicnestshop.model.Category;
 import org.example.nordicnestshop.repository.CategoryRepository;
 import org.example.nordicnestshop.test.utils.CustomPageImpl;
+import org.example.nordicnestshop.test.utils.TestImages;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
@@ -26,6 +28,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.test.context.support.WithMockUser;
@@ -34,10 +37,14 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
-import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
 import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectResponse;
 
@@ -48,16 +55,29 @@ class CategoryControllerTest {
     static class TestAppConfig {
         @Bean
         @Primary
-        public S3Client s3Client() {
-            S3Client mockS3Client = Mockito.mock(S3Client.class);
+        public S3AsyncClient s3AsyncClient() {
+            S3AsyncClient mockS3Client = Mockito.mock(S3AsyncClient.class);
 
             // Mock the putObject method to do nothing
-            when(mockS3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
-                    .thenReturn(PutObjectResponse.builder().build());
+            when(mockS3Client.putObject(any(PutObjectRequest.class),
+                    any(AsyncRequestBody.class)))
+                    .thenReturn(CompletableFuture.completedFuture(
+                            PutObjectResponse.builder().build()));
 
             // Mock the deleteObject method to do nothing
             when(mockS3Client.deleteObject(any(DeleteObjectRequest.class)))
-                    .thenReturn(DeleteObjectResponse.builder().build());
+                    .thenReturn(CompletableFuture.completedFuture(
+                            DeleteObjectResponse.builder().build()));
+
+            // Every key of a batch delete succeeds
+            when(mockS3Client.deleteObjects(any(DeleteObjectsRequest.class)))
+                    .thenReturn(CompletableFuture.completedFuture(
+                            DeleteObjectsResponse.builder().build()));
+
+            // Nothing is stored yet, every upload goes through
+            when(mockS3Client.headObject(any(HeadObjectRequest.class)))
+                    .thenReturn(CompletableFuture.failedFuture(
+                            NoSuchKeyException.builder().statusCode(404).build()));
 
             // For getObject or other methods if needed
             // when(mockS3Client.getObject(...)).thenReturn(...);
@@ -98,7 +118,7 @@ class CategoryControllerTest {
                 "image",
                 "test-image.jpg",
                 "image/jpeg",
-                "test image content".getBytes()
+                TestImages.jpeg()
         );
 
         // Act & Assert
@@ -135,7 +155,7 @@ class CategoryControllerTest {
                 "image",
                 "test-image.jpg",
                 "image/jpeg",
-                "test image content".getBytes()
+                TestImages.jpeg()
         );
 
         // Act & Assert
@@ -157,7 +177,7 @@ class CategoryControllerTest {
                 "image",
                 "test-image.jpg",
                 "image/jpeg",
-                "test image content".getBytes()
+                TestImages.jpeg()
         );
 
         mockMvc.perform(multipart("/categories")
@@ -187,7 +207,7 @@ class CategoryControllerTest {
                 "image",
                 "test-image.jpg",
                 "image/jpeg",
-                "test image content".getBytes()
+                TestImages.jpeg()
         );
 
         // Act & Assert
@@ -329,6 +349,51 @@ class CategoryControllerTest {
         Assertions.assertEquals("Sleeping room,Test category3", actual.getTitle());
     }
 
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMIN"})
+    @Sql(scripts = "classpath:category/add-categories.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:category/delete-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getCategoryById_conditionalRequest_NotModifiedUntilUpdate() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(get("/categories/3"))
+                .andExpect(status().isOk())
+                .andReturn();
+        String etag = mvcResult.getResponse().getHeader(HttpHeaders.ETAG);
+        String lastModified = mvcResult.getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+        Assertions.assertNotNull(etag);
+        Assertions.assertNotNull(lastModified);
+
+        mockMvc.perform(get("/categories/3").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/categories/title")
+                        .param("title", "Sleeping room,Test category3")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/categories/3").header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(multipart("/categories/3")
+                        .param("title", "Test Category")
+                        .param("description", "Test Description")
+                        .param("type", Category.CategoryType.DESIGN.toString())
+                        .with(csrf())
+                        .with(request -> {
+                            request.setMethod("PUT");
+                            return request;
+                        })
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isOk());
+
+        MvcResult updated = mockMvc
+                .perform(get("/categories/3").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn();
+        Assertions.assertNotEquals(etag, updated.getResponse().getHeader(HttpHeaders.ETAG));
+        mockMvc.perform(get("/categories/3").header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andExpect(status().isOk());
+    }
+
     @Test
     @Sql(scripts = "classpath:category/add-categories.sql",
             executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
@@ -398,6 +463,37 @@ class CategoryControllerTest {
                 actual.getContent().getFirst().getTitle());
     }
 
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMIN"})
+    @Sql(scripts = "classpath:category/add-categories.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:category/delete-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getAll_conditionalRequest_NotModifiedUntilCatalogChanges() throws Exception {
+        MvcResult mvcResult = mockMvc
+                .perform(get("/categories/type").param("type", "ROOM").param("size", "10"))
+                .andExpect(status().isOk())
+                .andReturn();
+        String etag = mvcResult.getResponse().getHeader(HttpHeaders.ETAG);
+        Assertions.assertNotNull(etag);
+        Assertions.assertTrue(mvcResult.getResponse().getHeader(HttpHeaders.CACHE_CONTROL)
+                .contains("stale-while-revalidate"));
+
+        mockMvc.perform(get("/categories/type").param("size", "10").param("type", "ROOM")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/categories/type").param("type", "DESIGN").param("size", "10")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(delete("/categories/5"))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/categories/type").param("type", "ROOM").param("size", "10")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
     @Test
     @Sql(scripts = "classpath:category/add-categories.sql",
             executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
@@ -0,0 +1,109 @@
+package org.example.nordicnestshop.controller;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import org.example.nordicnestshop.dto.image.CreateImageUploadDto;
+import org.example.nordicnestshop.dto.image.CreateImageUploadSessionDto;
+import org.example.nordicnestshop.dto.image.ImageUploadDto;
+import org.example.nordicnestshop.dto.image.ImageUploadSessionDto;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ImageControllerTest {
+    private static MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeAll
+    static void beforeAll(
+            @Autowired WebApplicationContext applicationContext) {
+        mockMvc = MockMvcBuilders
+                .webAppContextSetup(applicationContext)
+                .apply(springSecurity())
+                .build();
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMIN"})
+    void createUploadSession_whenValidRequest_thenReturnPresignedUrls() throws Exception {
+        CreateImageUploadSessionDto requestDto = createSession("image/jpeg", 1024);
+
+        MvcResult mvcResult = mockMvc.perform(post("/images/upload-sessions")
+                        .content(objectMapper.writeValueAsString(requestDto))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .with(csrf()))
+                .andExpect(status().isCreated())
+                .andReturn();
+
+        ImageUploadSessionDto actual = objectMapper.readValue(
+                mvcResult.getResponse().getContentAsString(), ImageUploadSessionDto.class);
+        Assertions.assertEquals(1, actual.getUploads().size());
+        ImageUploadDto upload = actual.getUploads().get(0);
+        Assertions.assertTrue(upload.getKey().startsWith("uploads/"));
+        Assertions.assertTrue(upload.getUploadUrl().contains(upload.getKey()));
+        Assertions.assertTrue(upload.getUploadUrl().contains("X-Amz-Signature="));
+        Assertions.assertNotNull(upload.getExpiresAt());
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMIN"})
+    void createUploadSession_whenContentTypeNotAllowed_thenReturnBadRequest() throws Exception {
+        CreateImageUploadSessionDto requestDto = createSession("image/gif", 1024);
+
+        mockMvc.perform(post("/images/upload-sessions")
+                        .content(objectMapper.writeValueAsString(requestDto))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .with(csrf()))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMIN"})
+    void createUploadSession_whenFileTooLarge_thenReturnBadRequest() throws Exception {
+        CreateImageUploadSessionDto requestDto = createSession("image/png", 64L * 1024 * 1024);
+
+        mockMvc.perform(post("/images/upload-sessions")
+                        .content(objectMapper.writeValueAsString(requestDto))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .with(csrf()))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"USER"})
+    void createUploadSession_whenUnauthorized_thenReturnForbidden() throws Exception {
+        CreateImageUploadSessionDto requestDto = createSession("image/jpeg", 1024);
+
+        mockMvc.perform(post("/images/upload-sessions")
+                        .content(objectMapper.writeValueAsString(requestDto))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .with(csrf()))
+                .andExpect(status().isForbidden());
+    }
+
+    private CreateImageUploadSessionDto createSession(String contentType, long size) {
+        CreateImageUploadDto file = new CreateImageUploadDto();
+        file.setContentType(contentType);
+        file.setSize(size);
+
+        CreateImageUploadSessionDto requestDto = new CreateImageUploadSessionDto();
+        requestDto.setFiles(List.of(file));
+        return requestDto;
+    }
+}
@@ -0,0 +1,191 @@
+package org.example.nordicnestshop.controller;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.example.nordicnestshop.dto.image.CreateImageUploadDto;
+import org.example.nordicnestshop.dto.image.CreateImageUploadSessionDto;
+import org.example.nordicnestshop.dto.image.ImageUploadDto;
+import org.example.nordicnestshop.dto.image.ImageUploadSessionDto;
+import org.example.nordicnestshop.dto.product.ProductFullDto;
+import org.example.nordicnestshop.test.utils.TestImages;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "storage.type=local",
+                "storage.local.root=target/test-storage",
+                "storage.local.public-url=http://localhost/files"
+        })
+class LocalStorageControllerTest {
+    private static final String PUBLIC_URL = "http://localhost/files/";
+    private static final Path ROOT = Path.of("target/test-storage");
+
+    private static MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeAll
+    static void beforeAll(
+            @Autowired WebApplicationContext applicationContext) {
+        mockMvc = MockMvcBuilders
+                .webAppContextSetup(applicationContext)
+                .apply(springSecurity())
+                .build();
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMIN"})
+    @Sql(scripts = "classpath:category/add-categories-without-id.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void createProduct_storesImagesOnDiskAndServesThem() throws Exception {
+        MockMultipartFile image = new MockMultipartFile(
+                "images",
+                "test-image-1.jpg",
+                "image/jpeg",
+                TestImages.jpeg()
+        );
+
+        MvcResult mvcResult = mockMvc.perform(multipart("/products")
+                        .file(image)
+                        .param("title", "Test Product")
+                        .param("description", "This is a test product description")
+                        .param("article", "LOCAL-1")
+                        .param("price", "99.99")
+                        .param("categoryIds", "1")
+                        .with(csrf())
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isCreated())
+                .andReturn();
+        ProductFullDto product = objectMapper.readValue(
+                mvcResult.getResponse().getContentAsString(), ProductFullDto.class);
+
+        String key = toKey(product.getImages().get(0));
+        Assertions.assertTrue(Files.isRegularFile(ROOT.resolve(key)));
+        Assertions.assertTrue(Files.isRegularFile(
+                ROOT.resolve(toKey(product.getThumbnails().get(0)))));
+        mockMvc.perform(get("/files/" + key))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "image/webp"));
+
+        mockMvc.perform(delete("/products/" + product.getId()))
+                .andExpect(status().isNoContent());
+        awaitDeleted(ROOT.resolve(key));
+        mockMvc.perform(get("/files/" + key))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMIN"})
+    @Sql(scripts = "classpath:category/add-categories-without-id.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void uploadToPresignedUrl_thenImportByKey() throws Exception {
+        byte[] content = TestImages.png();
+        ImageUploadDto upload = createUpload("image/png", content.length);
+
+        mockMvc.perform(put(URI.create(upload.getUploadUrl()))
+                        .content(content)
+                        .contentType("image/png"))
+                .andExpect(status().isOk());
+        Assertions.assertTrue(Files.isRegularFile(ROOT.resolve(upload.getKey())));
+
+        mockMvc.perform(multipart("/products")
+                        .param("title", "Test Product")
+                        .param("description", "This is a test product description")
+                        .param("article", "LOCAL-2")
+                        .param("price", "99.99")
+                        .param("categoryIds", "1")
+                        .param("imageKeys", upload.getKey())
+                        .with(csrf())
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isCreated());
+        // The staged original is removed once its variants are stored
+        awaitDeleted(ROOT.resolve(upload.getKey()));
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMIN"})
+    void uploadToPresignedUrl_whenSignatureDoesNotMatch_thenReturnForbidden() throws Exception {
+        byte[] content = TestImages.png();
+        ImageUploadDto upload = createUpload("image/png", content.length);
+
+        // Signed as PNG, sent as JPEG
+        mockMvc.perform(put(URI.create(upload.getUploadUrl()))
+                        .content(content)
+                        .contentType("image/jpeg"))
+                .andExpect(status().isForbidden());
+        Assertions.assertFalse(Files.exists(ROOT.resolve(upload.getKey())));
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMIN"})
+    void uploadToPresignedUrl_whenLengthDoesNotMatch_thenReturnForbidden() throws Exception {
+        byte[] content = TestImages.png();
+        ImageUploadDto upload = createUpload("image/png", content.length + 1);
+
+        mockMvc.perform(put(URI.create(upload.getUploadUrl()))
+                        .content(content)
+                        .contentType("image/png"))
+                .andExpect(status().isForbidden());
+        Assertions.assertFalse(Files.exists(ROOT.resolve(upload.getKey())));
+    }
+
+    private ImageUploadDto createUpload(String contentType, long size) throws Exception {
+        CreateImageUploadDto file = new CreateImageUploadDto();
+        file.setContentType(contentType);
+        file.setSize(size);
+        CreateImageUploadSessionDto requestDto = new CreateImageUploadSessionDto();
+        requestDto.setFiles(List.of(file));
+
+        MvcResult mvcResult = mockMvc.perform(post("/images/upload-sessions")
+                        .content(objectMapper.writeValueAsString(requestDto))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .with(csrf()))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readValue(mvcResult.getResponse().getContentAsString(),
+                ImageUploadSessionDto.class).getUploads().get(0);
+    }
+
+    private String toKey(String url) {
+        Assertions.assertTrue(url.startsWith(PUBLIC_URL), url);
+        return url.substring(PUBLIC_URL.length());
+    }
+
+    private void awaitDeleted(Path path) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (Files.exists(path) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        Assertions.assertFalse(Files.exists(path));
+    }
+}
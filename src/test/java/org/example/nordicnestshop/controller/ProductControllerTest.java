@@ -1,6 +1,11 @@
 package org.example.nordicnestshop.controller;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
@@ -12,39 +17,72 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
+import org.example.nordicnestshop.dto.product.PriceBucketDto;
 import org.example.nordicnestshop.dto.product.ProductDto;
 import org.example.nordicnestshop.dto.product.ProductFullDto;
 import org.example.nordicnestshop.dto.product.ProductSearchResponseDto;
 import org.example.nordicnestshop.dto.product.attribute.AttributeDto;
+import org.example.nordicnestshop.event.ProductChangedEvent;
+import org.example.nordicnestshop.model.enums.SearchMode;
 import org.example.nordicnestshop.model.product.Product;
 import org.example.nordicnestshop.repository.ProductRepository;
+import org.example.nordicnestshop.service.detail.ProductDetailCache;
+import org.example.nordicnestshop.service.index.ProductFilterIndex;
+import org.example.nordicnestshop.service.search.JpaProductSearchEngine;
 import org.example.nordicnestshop.test.utils.CustomPageImpl;
+import org.example.nordicnestshop.test.utils.TestImages;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatcher;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
-import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
 import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectResponse;
 
@@ -60,20 +98,51 @@ class ProductControllerTest {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private S3AsyncClient s3AsyncClient;
+
+    @Autowired
+    private JpaProductSearchEngine jpaProductSearchEngine;
+
+    @Autowired
+    private ProductFilterIndex productFilterIndex;
+
+    @Autowired
+    private ProductDetailCache productDetailCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @TestConfiguration
     static class TestS3Config {
         @Bean
         @Primary
-        public S3Client s3Client() {
-            S3Client mockS3Client = Mockito.mock(S3Client.class);
+        public S3AsyncClient s3AsyncClient() {
+            S3AsyncClient mockS3Client = Mockito.mock(S3AsyncClient.class);
 
             // Mock the putObject method to do nothing
-            when(mockS3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
-                    .thenReturn(PutObjectResponse.builder().build());
+            when(mockS3Client.putObject(any(PutObjectRequest.class),
+                    any(AsyncRequestBody.class)))
+                    .thenReturn(CompletableFuture.completedFuture(
+                            PutObjectResponse.builder().build()));
 
             // Mock the deleteObject method to do nothing
             when(mockS3Client.deleteObject(any(DeleteObjectRequest.class)))
-                    .thenReturn(DeleteObjectResponse.builder().build());
+                    .thenReturn(CompletableFuture.completedFuture(
+                            DeleteObjectResponse.builder().build()));
+
+            // Every key of a batch delete succeeds
+            when(mockS3Client.deleteObjects(any(DeleteObjectsRequest.class)))
+                    .thenReturn(CompletableFuture.completedFuture(
+                            DeleteObjectsResponse.builder().build()));
+
+            // Nothing is stored yet, every upload goes through
+            when(mockS3Client.headObject(any(HeadObjectRequest.class)))
+                    .thenReturn(CompletableFuture.failedFuture(
+                            NoSuchKeyException.builder().statusCode(404).build()));
 
             // For getObject or other methods if needed
             // when(mockS3Client.getObject(...)).thenReturn(...);
@@ -105,14 +174,14 @@ class ProductControllerTest {
                 "images",
                 "test-image-1.jpg",
                 "image/jpeg",
-                "test image content 1".getBytes()
+                TestImages.jpeg()
         );
 
         MockMultipartFile image2 = new MockMultipartFile(
                 "images",
-                "test-image-2.jpg",
-                "image/jpeg",
-                "test image content 2".getBytes()
+                "test-image-2.png",
+                "image/png",
+                TestImages.png()
         );
 
         // Create the request payload
@@ -171,6 +240,9 @@ class ProductControllerTest {
 
         // Verify images
         Assertions.assertEquals(2, actualProduct.getImages().size());
+        Assertions.assertEquals(2, actualProduct.getThumbnails().size());
+        actualProduct.getThumbnails().forEach(thumbnail ->
+                Assertions.assertTrue(thumbnail.endsWith("-thumbnail.webp")));
 
         // Verify product is stored in DB
         Optional<Product> storedProduct = productRepository.findById(actualProduct.getId());
@@ -178,6 +250,157 @@ class ProductControllerTest {
         Assertions.assertEquals(title, storedProduct.get().getTitle());
     }
 
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMIN"})
+    @Sql(scripts = "classpath:category/add-categories-without-id.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void createProduct_whenOneImageHasInvalidType_thenReturnBadRequest() throws Exception {
+        MockMultipartFile image1 = new MockMultipartFile(
+                "images",
+                "test-image-1.jpg",
+                "image/jpeg",
+                TestImages.jpeg()
+        );
+
+        MockMultipartFile image2 = new MockMultipartFile(
+                "images",
+                "test-image-2.gif",
+                "image/gif",
+                "test image content 2".getBytes()
+        );
+
+        mockMvc.perform(multipart("/products")
+                        .file(image1)
+                        .file(image2)
+                        .param("title", "Test Product")
+                        .param("description", "This is a test product description")
+                        .param("article", "TEST-123")
+                        .param("price", "99.99")
+                        .param("categoryIds", "1")
+                        .with(csrf())
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isBadRequest());
+
+        Assertions.assertEquals(0, productRepository.count());
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMIN"})
+    @Sql(scripts = "classpath:category/add-categories-without-id.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void createProduct_whenImageCantBeDecoded_thenReturnBadRequest() throws Exception {
+        MockMultipartFile image = new MockMultipartFile(
+                "images",
+                "test-image-1.jpg",
+                "image/jpeg",
+                "test image content 1".getBytes()
+        );
+
+        mockMvc.perform(multipart("/products")
+                        .file(image)
+                        .param("title", "Test Product")
+                        .param("description", "This is a test product description")
+                        .param("article", "TEST-123")
+                        .param("price", "99.99")
+                        .param("categoryIds", "1")
+                        .with(csrf())
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isBadRequest());
+
+        Assertions.assertEquals(0, productRepository.count());
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMIN"})
+    @Sql(scripts = "classpath:category/add-categories-without-id.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void createProduct_whenImageKeyIsUploaded_thenImportsImage() throws Exception {
+        final String key = "uploads/" + UUID.randomUUID();
+        stageUpload(key, TestImages.jpeg());
+
+        MvcResult mvcResult = mockMvc.perform(multipart("/products")
+                        .param("title", "Test Product")
+                        .param("description", "This is a test product description")
+                        .param("article", "TEST-123")
+                        .param("price", "99.99")
+                        .param("categoryIds", "1")
+                        .param("imageKeys", key)
+                        .with(csrf())
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isCreated())
+                .andReturn();
+
+        ProductFullDto actual = objectMapper.readValue(
+                mvcResult.getResponse().getContentAsString(), ProductFullDto.class);
+        Assertions.assertEquals(1, actual.getImages().size());
+        Assertions.assertTrue(actual.getImages().get(0).endsWith(".webp"));
+        Assertions.assertEquals(1, actual.getThumbnails().size());
+        // The staged original is removed through the outbox once the product is saved
+        verify(s3AsyncClient, timeout(5000)).deleteObjects(argThat(deletesKey(key)));
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMIN"})
+    @Sql(scripts = "classpath:category/add-categories-without-id.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void createProduct_whenSaveFailsAfterImport_KeepsStagedUpload() throws Exception {
+        final String key = "uploads/" + UUID.randomUUID();
+        stageUpload(key, TestImages.jpeg());
+        Mockito.clearInvocations(s3AsyncClient);
+
+        // The price does not fit the column, the insert fails after the import
+        mockMvc.perform(multipart("/products")
+                        .param("title", "Test Product")
+                        .param("description", "This is a test product description")
+                        .param("article", "TEST-123")
+                        .param("price", "100000000000")
+                        .param("categoryIds", "1")
+                        .param("imageKeys", key)
+                        .with(csrf())
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(result -> Assertions.assertNotEquals(201,
+                        result.getResponse().getStatus()));
+
+        verify(s3AsyncClient).getObject(argThat((GetObjectRequest request) ->
+                request != null && key.equals(request.key())), any(AsyncResponseTransformer.class));
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM image_deletions WHERE url LIKE ?", Integer.class,
+                "%/" + key));
+        verify(s3AsyncClient, never()).deleteObjects(argThat(deletesKey(key)));
+        verify(s3AsyncClient, never()).deleteObject(
+                argThat((DeleteObjectRequest request) ->
+                        request != null && key.equals(request.key())));
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMIN"})
+    @Sql(scripts = "classpath:category/add-categories-without-id.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void createProduct_whenImageKeyIsNotStaged_thenReturnBadRequest() throws Exception {
+        mockMvc.perform(multipart("/products")
+                        .param("title", "Test Product")
+                        .param("description", "This is a test product description")
+                        .param("article", "TEST-123")
+                        .param("price", "99.99")
+                        .param("categoryIds", "1")
+                        .param("imageKeys", "products/existing-image.webp")
+                        .with(csrf())
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isBadRequest());
+
+        Assertions.assertEquals(0, productRepository.count());
+    }
+
     @Test
     @WithMockUser(username = "user", authorities = {"USER"})
     void createProduct_whenUnauthorized_thenReturnForbidden() throws Exception {
@@ -301,7 +524,7 @@ class ProductControllerTest {
                 "images",
                 "test-image-1.jpg",
                 "image/jpeg",
-                "test image content 1".getBytes()
+                TestImages.jpeg()
         );
 
         // Create the request payload
@@ -381,6 +604,37 @@ class ProductControllerTest {
         Assertions.assertTrue(productRepository.findById(2L).isEmpty());
     }
 
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMIN"})
+    @Sql(scripts = "classpath:category/add-categories-without-id.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void deleteProduct_withSharedImage_DeletesObjectWithLastReference() throws Exception {
+        Mockito.clearInvocations(s3AsyncClient);
+        ProductFullDto first = createProductWithImage("SHARED-1");
+        ProductFullDto second = createProductWithImage("SHARED-2");
+
+        // The same bytes end up under the same content addressed key
+        Assertions.assertEquals(first.getImages(), second.getImages());
+        Assertions.assertEquals(first.getThumbnails(), second.getThumbnails());
+        String url = first.getImages().get(0);
+        final String key = url.substring(url.lastIndexOf('/') + 1);
+        Assertions.assertEquals(2, getReferenceCount(url));
+
+        mockMvc.perform(delete("/products/" + first.getId()))
+                .andExpect(status().isNoContent());
+        Assertions.assertEquals(1, getReferenceCount(url));
+        verify(s3AsyncClient, never()).deleteObjects(argThat(deletesKey(key)));
+
+        mockMvc.perform(delete("/products/" + second.getId()))
+                .andExpect(status().isNoContent());
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM image_objects WHERE url = ?", Integer.class, url));
+        // Deleted by the outbox worker once the transaction has committed
+        verify(s3AsyncClient, timeout(5000)).deleteObjects(argThat(deletesKey(key)));
+    }
+
     @Test
     @Sql(scripts = "classpath:product/add-product-and-category.sql",
             executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
@@ -416,6 +670,136 @@ class ProductControllerTest {
         Assertions.assertEquals(1, actual.getAttributes().size());
     }
 
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getProductById_withSeveralCollections_Success() throws Exception {
+        //Given
+        productDetailCache.onProductChanged(new ProductChangedEvent(1L));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        //When
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/products/1")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        //Then
+        ProductFullDto actual = objectMapper.readValue(
+                mvcResult.getResponse().getContentAsString(),
+                ProductFullDto.class);
+
+        Assertions.assertEquals(List.of(
+                "https://nordic-nest-bucket.s3.amazonaws.com/cat5.webp1-0",
+                "https://nordic-nest-bucket.s3.amazonaws.com/cat5.webp1-1",
+                "https://nordic-nest-bucket.s3.amazonaws.com/cat5.webp1-2"), actual.getImages());
+        Assertions.assertEquals(Set.of(1L, 2L, 5L), Set.copyOf(actual.getCategoryIds()));
+        Assertions.assertEquals(2, actual.getAttributes().size());
+
+        // The product row is read once, every collection is fetched by a query of its own
+        Assertions.assertEquals(1, statistics.getEntityStatistics(Product.class.getName())
+                .getLoadCount());
+        for (String collection : List.of("images", "categories", "attributes")) {
+            Assertions.assertEquals(1, statistics.getCollectionStatistics(
+                    Product.class.getName() + "." + collection).getFetchCount(), collection);
+        }
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMIN"})
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getProductById_afterUpdate_ReturnsUpdatedProductWithNewEtag() throws Exception {
+        MvcResult first = mockMvc.perform(get("/products/4"))
+                .andExpect(status().isOk())
+                .andReturn();
+        MvcResult cached = mockMvc.perform(get("/products/4"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        String etag = first.getResponse().getHeader("ETag");
+        Assertions.assertNotNull(etag);
+        Assertions.assertEquals(etag, cached.getResponse().getHeader("ETag"));
+        Assertions.assertEquals(first.getResponse().getContentAsString(),
+                cached.getResponse().getContentAsString());
+
+        mockMvc.perform(multipart("/products/4")
+                        .param("title", "Updated Chear4")
+                        .param("description", "info about cool bad4")
+                        .param("article", "111-3440g3")
+                        .param("price", "110.00")
+                        .with(csrf())
+                        .with(request -> {
+                            request.setMethod("PUT");
+                            return request;
+                        })
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isOk());
+
+        MvcResult updated = mockMvc.perform(get("/products/4"))
+                .andExpect(status().isOk())
+                .andReturn();
+        ProductFullDto actual = objectMapper.readValue(
+                updated.getResponse().getContentAsString(), ProductFullDto.class);
+
+        Assertions.assertEquals("Updated Chear4", actual.getTitle());
+        Assertions.assertNotEquals(etag, updated.getResponse().getHeader("ETag"));
+    }
+
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getProductById_conditionalRequest_NotModified() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(get("/products/3"))
+                .andExpect(status().isOk())
+                .andReturn();
+        String etag = mvcResult.getResponse().getHeader(HttpHeaders.ETAG);
+        String lastModified = mvcResult.getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+        Assertions.assertNotNull(lastModified);
+
+        MvcResult notModified = mockMvc
+                .perform(get("/products/3").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andReturn();
+        Assertions.assertEquals(0, notModified.getResponse().getContentLength());
+        mockMvc.perform(get("/products/3").header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andExpect(status().isNotModified());
+
+        // Versions are kept by the database, so direct changes to a collection count too
+        long version = getVersion(3L);
+        jdbcTemplate.update("DELETE FROM attributes WHERE product_id = 3");
+        // One bump per statement however many rows it touched
+        Assertions.assertEquals(version + 1, getVersion(3L));
+
+        MvcResult changed = mockMvc
+                .perform(get("/products/3").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn();
+        ProductFullDto actual = objectMapper.readValue(
+                changed.getResponse().getContentAsString(), ProductFullDto.class);
+        Assertions.assertNotEquals(etag, changed.getResponse().getHeader(HttpHeaders.ETAG));
+        Assertions.assertTrue(actual.getAttributes().isEmpty());
+
+        // A new version moves Last-Modified on even within the same second
+        mockMvc.perform(get("/products/3").header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andExpect(status().isOk());
+        // The ETag decides when both validators are sent
+        mockMvc.perform(get("/products/3")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .header(HttpHeaders.IF_MODIFIED_SINCE,
+                                changed.getResponse().getHeader(HttpHeaders.LAST_MODIFIED)))
+                .andExpect(status().isOk());
+    }
+
     @Test
     @Sql(scripts = "classpath:product/add-product-and-category.sql",
             executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
@@ -447,23 +831,7 @@ class ProductControllerTest {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        JsonNode rootNode = objectMapper.readTree(mvcResult.getResponse().getContentAsString());
-
-        CustomPageImpl<ProductDto> productsPage = objectMapper.treeToValue(
-                rootNode.get("products"), new TypeReference<>() {
-                }
-        );
-
-        Map<String, List<String>> availableAttributes = objectMapper.treeToValue(
-                rootNode.get("availableAttributes"), new TypeReference<>() {
-                }
-        );
-
-        BigDecimal minPrice = new BigDecimal(rootNode.get("minPrice").asText());
-        BigDecimal maxPrice = new BigDecimal(rootNode.get("maxPrice").asText());
-
-        ProductSearchResponseDto responseDto =
-                new ProductSearchResponseDto(productsPage, availableAttributes, minPrice, maxPrice);
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
 
         Assertions.assertEquals(1, responseDto.getProducts().getContent().size());
     }
@@ -484,23 +852,7 @@ class ProductControllerTest {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        JsonNode rootNode = objectMapper.readTree(mvcResult.getResponse().getContentAsString());
-
-        CustomPageImpl<ProductDto> productsPage = objectMapper.treeToValue(
-                rootNode.get("products"), new TypeReference<>() {
-                }
-        );
-
-        Map<String, List<String>> availableAttributes = objectMapper.treeToValue(
-                rootNode.get("availableAttributes"), new TypeReference<>() {
-                }
-        );
-
-        BigDecimal minPrice = new BigDecimal(rootNode.get("minPrice").asText());
-        BigDecimal maxPrice = new BigDecimal(rootNode.get("maxPrice").asText());
-
-        ProductSearchResponseDto responseDto =
-                new ProductSearchResponseDto(productsPage, availableAttributes, minPrice, maxPrice);
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
 
         Assertions.assertEquals(2, responseDto.getProducts().getContent().size());
     }
@@ -520,26 +872,90 @@ class ProductControllerTest {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        JsonNode rootNode = objectMapper.readTree(mvcResult.getResponse().getContentAsString());
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
 
-        CustomPageImpl<ProductDto> productsPage = objectMapper.treeToValue(
-                rootNode.get("products"), new TypeReference<>() {
-                }
-        );
+        Assertions.assertEquals(6, responseDto.getProducts().getContent().size());
+    }
 
-        Map<String, List<String>> availableAttributes = objectMapper.treeToValue(
-                rootNode.get("availableAttributes"), new TypeReference<>() {
-                }
-        );
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getAllByCategoryIdsAndAttributes_productCards_ContainMainImage() throws Exception {
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/products/search")
+                                .param("page_number", "0")
+                                .param("page_size", "2")
+                                .param("sort", "price,desc")
+                                .param("minPrice", "0")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
 
-        BigDecimal minPrice = new BigDecimal(rootNode.get("minPrice").asText());
-        BigDecimal maxPrice = new BigDecimal(rootNode.get("maxPrice").asText());
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
 
-        ProductSearchResponseDto responseDto
-                = new ProductSearchResponseDto(
-                        productsPage, availableAttributes, minPrice, maxPrice);
+        Assertions.assertEquals(2, responseDto.getProducts().getContent().size());
+        responseDto.getProducts().getContent().forEach(product -> {
+            Assertions.assertNotNull(product.getTitle());
+            Assertions.assertNotNull(product.getPrice());
+            Assertions.assertEquals("https://nordic-nest-bucket.s3.amazonaws.com/cat5.webp"
+                    + product.getId() + "-0", product.getMainImage());
+        });
+    }
 
-        Assertions.assertEquals(6, responseDto.getProducts().getContent().size());
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getAllByCategoryIdsAndAttributes_indexBehindCatalog_NotCached() throws Exception {
+        Assertions.assertEquals(List.of(3L), getSortedIds("size", "m", 10));
+
+        // Another sync holding the lock keeps the index behind the catalog
+        ProductFilterIndex index = AopTestUtils.getTargetObject(productFilterIndex);
+        Lock syncLock = (Lock) ReflectionTestUtils.getField(index, "syncLock");
+        CompletableFuture<Void> release = new CompletableFuture<>();
+        CompletableFuture<Void> locked = new CompletableFuture<>();
+        Thread holder = Thread.ofVirtual().start(() -> {
+            syncLock.lock();
+            try {
+                locked.complete(null);
+                release.join();
+            } finally {
+                syncLock.unlock();
+            }
+        });
+        locked.join();
+        try {
+            jdbcTemplate.update("UPDATE attributes SET value = 'm' "
+                    + "WHERE product_id = 4 AND key = 'size'");
+            Assertions.assertEquals(List.of(3L), getSortedIds("size", "m", 10));
+        } finally {
+            release.complete(null);
+            holder.join();
+        }
+
+        Assertions.assertEquals(List.of(3L, 4L), getSortedIds("size", "m", 10));
+    }
+
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getAllByCategoryIdsAndAttributes_sortedLargeIndexMatch_FilteredByDatabase()
+            throws Exception {
+        List<Long> boundIds = getSortedIds("size", "s,l", 10);
+        ReflectionTestUtils.setField(jpaProductSearchEngine, "maxBoundIds", 1);
+        try {
+            // Page sizes differ so that responses are not served from the result cache
+            Assertions.assertEquals(boundIds, getSortedIds("size", "s,l", 9));
+            Assertions.assertEquals(6, getSortedIds("page_number", "0", 8).size());
+        } finally {
+            ReflectionTestUtils.setField(jpaProductSearchEngine, "maxBoundIds", 10000);
+        }
     }
 
     @Test
@@ -561,24 +977,7 @@ class ProductControllerTest {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        JsonNode rootNode = objectMapper.readTree(mvcResult.getResponse().getContentAsString());
-
-        CustomPageImpl<ProductDto> productsPage = objectMapper.treeToValue(
-                rootNode.get("products"), new TypeReference<>() {
-                }
-        );
-
-        Map<String, List<String>> availableAttributes = objectMapper.treeToValue(
-                rootNode.get("availableAttributes"), new TypeReference<>() {
-                }
-        );
-
-        BigDecimal minPrice = new BigDecimal(rootNode.get("minPrice").asText());
-        BigDecimal maxPrice = new BigDecimal(rootNode.get("maxPrice").asText());
-
-        ProductSearchResponseDto responseDto
-                = new ProductSearchResponseDto(
-                        productsPage, availableAttributes, minPrice, maxPrice);
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
 
         Assertions.assertEquals(1, responseDto.getProducts().getContent().size());
     }
@@ -602,26 +1001,31 @@ class ProductControllerTest {
                 .andExpect(status().isOk())
                 .andReturn();
 
-        JsonNode rootNode = objectMapper.readTree(mvcResult.getResponse().getContentAsString());
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
 
-        CustomPageImpl<ProductDto> productsPage = objectMapper.treeToValue(
-                rootNode.get("products"), new TypeReference<>() {
-                }
-        );
-
-        Map<String, List<String>> availableAttributes = objectMapper.treeToValue(
-                rootNode.get("availableAttributes"), new TypeReference<>() {
-                }
-        );
+        Assertions.assertEquals(2, responseDto.getProducts().getContent().size());
+    }
 
-        BigDecimal minPrice = new BigDecimal(rootNode.get("minPrice").asText());
-        BigDecimal maxPrice = new BigDecimal(rootNode.get("maxPrice").asText());
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getAllByCategoryIdsAndAttributes_priceFilter_Success() throws Exception {
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/products/search")
+                                .param("page_number", "0")
+                                .param("page_size", "10")
+                                .param("minPrice", "100")
+                                .param("maxPrice", "200")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
 
-        ProductSearchResponseDto responseDto
-                = new ProductSearchResponseDto(
-                        productsPage, availableAttributes, minPrice, maxPrice);
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
 
-        Assertions.assertEquals(2, responseDto.getProducts().getContent().size());
+        Assertions.assertEquals(5, responseDto.getProducts().getContent().size());
     }
 
     @Test
@@ -629,7 +1033,7 @@ class ProductControllerTest {
             executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
     @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
             executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
-    void getAllByCategoryIdsAndAttributes_priceFilter_Success() throws Exception {
+    void getAllByCategoryIdsAndAttributes_searchTextFilter_Success() throws Exception {
         MvcResult mvcResult = mockMvc
                 .perform(
                         get("/products/search")
@@ -637,29 +1041,60 @@ class ProductControllerTest {
                                 .param("page_size", "10")
                                 .param("minPrice", "100")
                                 .param("maxPrice", "200")
+                                .param("searchText", "Cat")
                 )
                 .andExpect(status().isOk())
                 .andReturn();
 
-        JsonNode rootNode = objectMapper.readTree(mvcResult.getResponse().getContentAsString());
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
 
-        CustomPageImpl<ProductDto> productsPage = objectMapper.treeToValue(
-                rootNode.get("products"), new TypeReference<>() {
-                }
-        );
+        Assertions.assertEquals(3, responseDto.getProducts().getContent().size());
+    }
 
-        Map<String, List<String>> availableAttributes = objectMapper.treeToValue(
-                rootNode.get("availableAttributes"), new TypeReference<>() {
-                }
-        );
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getAllByCategoryIdsAndAttributes_searchTextRankedByRelevance_Success()
+            throws Exception {
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/products/search")
+                                .param("page_number", "0")
+                                .param("page_size", "10")
+                                .param("searchText", "cat4")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
 
-        BigDecimal minPrice = new BigDecimal(rootNode.get("minPrice").asText());
-        BigDecimal maxPrice = new BigDecimal(rootNode.get("maxPrice").asText());
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
 
-        ProductSearchResponseDto responseDto =
-                new ProductSearchResponseDto(productsPage, availableAttributes, minPrice, maxPrice);
+        Assertions.assertEquals(List.of(4L, 6L), responseDto.getProducts().getContent().stream()
+                .map(ProductDto::getId).toList());
+    }
 
-        Assertions.assertEquals(5, responseDto.getProducts().getContent().size());
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getAllByCategoryIdsAndAttributes_searchTextByAttributeValue_Success()
+            throws Exception {
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/products/search")
+                                .param("page_number", "0")
+                                .param("page_size", "10")
+                                .param("searchText", "black")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
+
+        Assertions.assertEquals(List.of(2L, 6L), responseDto.getProducts().getContent().stream()
+                .map(ProductDto::getId).toList());
     }
 
     @Test
@@ -667,39 +1102,273 @@ class ProductControllerTest {
             executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
     @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
             executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
-    void getAllByCategoryIdsAndAttributes_searchTextFilter_Success() throws Exception {
+    void getAllByCategoryIdsAndAttributes_misspelledSearchText_FallsBackToFuzzy()
+            throws Exception {
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/products/search")
+                                .param("page_number", "0")
+                                .param("page_size", "10")
+                                .param("maxPrice", "120")
+                                .param("searchText", "Chearr")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
+
+        Assertions.assertEquals(SearchMode.FUZZY, responseDto.getSearchMode());
+        Assertions.assertEquals(List.of(1L, 4L), responseDto.getProducts().getContent().stream()
+                .map(ProductDto::getId).toList());
+    }
+
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getAllByCategoryIdsAndAttributes_fuzzySearchMode_Success() throws Exception {
         MvcResult mvcResult = mockMvc
                 .perform(
                         get("/products/search")
                                 .param("page_number", "0")
                                 .param("page_size", "10")
+                                .param("searchMode", "fuzzy")
+                                .param("searchText", "111-3440")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
+
+        Assertions.assertEquals(SearchMode.FUZZY, responseDto.getSearchMode());
+        Assertions.assertEquals(4L, responseDto.getProducts().getContent().get(0).getId());
+    }
+
+    @Test
+    void getAllByCategoryIdsAndAttributes_invalidSearchMode_NotSuccess() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(
+                        get("/products/search")
+                                .param("searchMode", "sounds-like")
+                                .param("searchText", "sofa")
+                )
+                .andExpect(status().isBadRequest())
+                .andReturn();
+
+        String cacheControl = mvcResult.getResponse().getHeader(HttpHeaders.CACHE_CONTROL);
+        Assertions.assertTrue(cacheControl == null || !cacheControl.contains("public"));
+    }
+
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getAllByCategoryIdsAndAttributes_attributesFilter_Success() throws Exception {
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/products/search")
+                                .param("page_number", "0")
+                                .param("page_size", "10")
+                                .param("size", "l,s")
+                                .param("color", "black,green")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
+
+        Assertions.assertEquals(List.of(1L, 2L, 6L), responseDto.getProducts().getContent().stream()
+                .map(ProductDto::getId).toList());
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMIN"})
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getAllByCategoryIdsAndAttributes_afterUpdate_ReturnsUpdatedProduct() throws Exception {
+        mockMvc.perform(multipart("/products/4")
+                        .param("title", "New Test Product")
+                        .param("description", "New This is a test product description")
+                        .param("article", "New TEST-123")
+                        .param("price", "109.99")
+                        .param("categoryIds", "4")
+                        .param("attributes[0].key", "color")
+                        .param("attributes[0].value", "Red")
+                        .with(csrf())
+                        .with(request -> {
+                            request.setMethod("PUT");
+                            return request;
+                        })
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isOk());
+
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/products/search")
+                                .param("page_number", "0")
+                                .param("page_size", "10")
+                                .param("categoryIds", "4")
+                                .param("color", "red")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
+
+        Assertions.assertEquals(List.of(4L), responseDto.getProducts().getContent().stream()
+                .map(ProductDto::getId).toList());
+    }
+
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getAllByCategoryIdsAndAttributes_conditionalRequest_NotModifiedUntilCatalogChanges()
+            throws Exception {
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/products/search")
+                                .param("page_size", "10")
+                                .param("size", "l")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+        String etag = mvcResult.getResponse().getHeader(HttpHeaders.ETAG);
+        Assertions.assertNotNull(etag);
+        Assertions.assertTrue(mvcResult.getResponse().getHeader(HttpHeaders.CACHE_CONTROL)
+                .contains("stale-while-revalidate"));
+
+        mockMvc.perform(get("/products/search").param("size", "l").param("page_size", "10")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/products/search").param("size", "m").param("page_size", "10")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+
+        jdbcTemplate.update("UPDATE products SET price = 15.00 WHERE id = 1");
+
+        mockMvc.perform(get("/products/search").param("size", "l").param("page_size", "10")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getAllByCategoryIdsAndAttributes_facetsCoverAllPages_Success() throws Exception {
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/products/search")
+                                .param("page_number", "0")
+                                .param("page_size", "1")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
+
+        Assertions.assertEquals(1, responseDto.getProducts().getContent().size());
+        Assertions.assertEquals(Map.of("l", 2L, "m", 1L, "s", 2L, "xxl", 1L),
+                responseDto.getAttributeFacets().get("size"));
+        Assertions.assertEquals(Map.of("black", 2L, "green", 1L),
+                responseDto.getAttributeFacets().get("color"));
+        Assertions.assertEquals(List.of("l", "m", "s", "xxl"),
+                responseDto.getAvailableAttributes().get("size"));
+    }
+
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getAllByCategoryIdsAndAttributes_facetsWithPriceFilter_Success() throws Exception {
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/products/search")
+                                .param("page_number", "0")
+                                .param("page_size", "1")
                                 .param("minPrice", "100")
                                 .param("maxPrice", "200")
-                                .param("searchText", "Cat")
+                                .param("color", "black")
                 )
                 .andExpect(status().isOk())
                 .andReturn();
 
-        JsonNode rootNode = objectMapper.readTree(mvcResult.getResponse().getContentAsString());
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
 
-        CustomPageImpl<ProductDto> productsPage = objectMapper.treeToValue(
-                rootNode.get("products"), new TypeReference<>() {
-                }
-        );
+        Assertions.assertEquals(Map.of("l", 1L, "s", 1L),
+                responseDto.getAttributeFacets().get("size"));
+        Assertions.assertEquals(Map.of("black", 2L),
+                responseDto.getAttributeFacets().get("color"));
+    }
 
-        Map<String, List<String>> availableAttributes = objectMapper.treeToValue(
-                rootNode.get("availableAttributes"), new TypeReference<>() {
-                }
-        );
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getAllByCategoryIdsAndAttributes_priceStatisticsCoverAllPages_Success()
+            throws Exception {
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/products/search")
+                                .param("page_number", "0")
+                                .param("page_size", "1")
+                                .param("priceBuckets", "4")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
 
-        BigDecimal minPrice = new BigDecimal(rootNode.get("minPrice").asText());
-        BigDecimal maxPrice = new BigDecimal(rootNode.get("maxPrice").asText());
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
 
-        ProductSearchResponseDto responseDto
-                = new ProductSearchResponseDto(
-                        productsPage, availableAttributes, minPrice, maxPrice);
+        Assertions.assertEquals(0, new BigDecimal("10").compareTo(responseDto.getMinPrice()));
+        Assertions.assertEquals(0, new BigDecimal("200").compareTo(responseDto.getMaxPrice()));
+        Assertions.assertEquals(List.of(1L, 0L, 4L, 1L), responseDto.getPriceHistogram()
+                .stream().map(PriceBucketDto::getCount).toList());
+        Assertions.assertEquals(0, new BigDecimal("152.50")
+                .compareTo(responseDto.getPriceHistogram().get(3).getFrom()));
+    }
 
-        Assertions.assertEquals(3, responseDto.getProducts().getContent().size());
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getAllByCategoryIdsAndAttributes_priceStatisticsWithPriceFilter_Success()
+            throws Exception {
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/products/search")
+                                .param("page_number", "0")
+                                .param("page_size", "1")
+                                .param("minPrice", "100")
+                                .param("maxPrice", "200")
+                                .param("priceBuckets", "2")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
+
+        Assertions.assertEquals(0, new BigDecimal("110").compareTo(responseDto.getMinPrice()));
+        Assertions.assertEquals(0, new BigDecimal("200").compareTo(responseDto.getMaxPrice()));
+        Assertions.assertEquals(List.of(4L, 1L), responseDto.getPriceHistogram()
+                .stream().map(PriceBucketDto::getCount).toList());
+    }
+
+    @Test
+    void getAllByCategoryIdsAndAttributes_invalidPriceBuckets_NotSuccess() throws Exception {
+        mockMvc.perform(
+                        get("/products/search")
+                                .param("priceBuckets", "0")
+                )
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -719,4 +1388,364 @@ class ProductControllerTest {
                 .andExpect(status().isBadRequest())
                 .andReturn();
     }
+
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getAllByCategoryIdsAndAttributes_cursorPagesSortedByPrice_Success() throws Exception {
+        List<Long> ids = searchAllPagesByCursor(Map.of(
+                "page_size", "2",
+                "sort", "price,asc"));
+
+        Assertions.assertEquals(List.of(1L, 4L, 2L, 6L, 3L, 5L), ids);
+    }
+
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getAllByCategoryIdsAndAttributes_cursorPagesWithPriceFilter_Success() throws Exception {
+        List<Long> ids = searchAllPagesByCursor(Map.of(
+                "page_size", "2",
+                "minPrice", "100",
+                "sort", "price,desc"));
+
+        Assertions.assertEquals(List.of(5L, 3L, 6L, 2L, 4L), ids);
+    }
+
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getAllByCategoryIdsAndAttributes_cursorPagesById_Success() throws Exception {
+        List<Long> ids = searchAllPagesByCursor(Map.of(
+                "page_size", "4",
+                "size", "l,s,xxl"));
+
+        Assertions.assertEquals(List.of(1L, 2L, 4L, 5L, 6L), ids);
+    }
+
+    @Test
+    void getAllByCategoryIdsAndAttributes_invalidCursor_NotSuccess() throws Exception {
+        mockMvc.perform(
+                        get("/products/search")
+                                .param("cursor", "not-a-cursor")
+                )
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getAllByCategoryIdsAndAttributes_withoutCount_Success() throws Exception {
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/products/search")
+                                .param("page_number", "1")
+                                .param("page_size", "2")
+                                .param("minPrice", "100")
+                                .param("sort", "price,asc")
+                                .param("count", "none")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        JsonNode products = objectMapper.readTree(mvcResult.getResponse().getContentAsString())
+                .get("products");
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
+
+        Assertions.assertEquals(List.of(6L, 3L), responseDto.getProducts().getContent().stream()
+                .map(ProductDto::getId).toList());
+        Assertions.assertFalse(products.has("totalElements"));
+        Assertions.assertFalse(products.get("last").asBoolean());
+        Assertions.assertNull(responseDto.getEstimatedTotal());
+    }
+
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getAllByCategoryIdsAndAttributes_estimatedCount_Success() throws Exception {
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/products/search")
+                                .param("page_number", "0")
+                                .param("page_size", "2")
+                                .param("minPrice", "100")
+                                .param("count", "estimate")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+        Assertions.assertEquals(5L, toSearchResponseDto(mvcResult).getEstimatedTotal());
+
+        mvcResult = mockMvc
+                .perform(
+                        get("/products/search")
+                                .param("page_number", "0")
+                                .param("page_size", "2")
+                                .param("size", "s,l")
+                                .param("count", "estimate")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+        Assertions.assertEquals(4L, toSearchResponseDto(mvcResult).getEstimatedTotal());
+    }
+
+    @Test
+    void getAllByCategoryIdsAndAttributes_invalidCountMode_NotSuccess() throws Exception {
+        mockMvc.perform(
+                        get("/products/search")
+                                .param("count", "approximately")
+                )
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getAllByCategoryIdsAndAttributes_concurrentFilters_Success() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> minPriceResults = new ArrayList<>();
+            List<Future<Integer>> maxPriceResults = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                minPriceResults.add(executor.submit(() -> countSearchResults("minPrice", "100")));
+                maxPriceResults.add(executor.submit(() -> countSearchResults("maxPrice", "100")));
+            }
+
+            for (Future<Integer> result : minPriceResults) {
+                Assertions.assertEquals(5, result.get());
+            }
+            for (Future<Integer> result : maxPriceResults) {
+                Assertions.assertEquals(1, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMIN"})
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getAllByCategoryIdsAndAttributes_cachedBeforeUpdate_ReturnsUpdatedProduct()
+            throws Exception {
+        Assertions.assertEquals(2, countSearchResults("size", "S"));
+        Assertions.assertEquals(2, countSearchResults("size", "s"));
+
+        mockMvc.perform(multipart("/products/4")
+                        .param("title", "New Test Product")
+                        .param("description", "New This is a test product description")
+                        .param("article", "New TEST-123")
+                        .param("price", "109.99")
+                        .param("categoryIds", "4")
+                        .param("attributes[0].key", "size")
+                        .param("attributes[0].value", "m")
+                        .with(csrf())
+                        .with(request -> {
+                            request.setMethod("PUT");
+                            return request;
+                        })
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isOk());
+
+        Assertions.assertEquals(1, countSearchResults("size", "s"));
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMIN"})
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getAllByCategoryIdsAndAttributes_repeatedSearch_RecordsCacheHit() throws Exception {
+        final double hits = getSearchCacheHits();
+
+        countSearchResults("minPrice", "120");
+        countSearchResults("minPrice", "120");
+
+        Assertions.assertEquals(hits + 1, getSearchCacheHits());
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = {"ADMIN"})
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getAllByCategoryIdsAndAttributes_reorderedValues_RecordsCacheHit() throws Exception {
+        final double hits = getSearchCacheHits();
+
+        final int total = countSearchResults("size", "s,m");
+
+        Assertions.assertEquals(total, countSearchResults("size", "M, s"));
+        Assertions.assertEquals(hits + 1, getSearchCacheHits());
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"USER"})
+    void getSearchCacheMetrics_NotAdmin_Forbidden() throws Exception {
+        mockMvc.perform(get("/actuator/metrics/cache.gets"))
+                .andExpect(status().isForbidden());
+    }
+
+    private List<Long> searchAllPagesByCursor(Map<String, String> params) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        String cursor = "";
+        do {
+            MockHttpServletRequestBuilder request = get("/products/search")
+                    .param("cursor", cursor);
+            params.forEach(request::param);
+            ProductSearchResponseDto responseDto = toSearchResponseDto(mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn());
+            responseDto.getProducts().forEach(product -> ids.add(product.getId()));
+            cursor = responseDto.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private int countSearchResults(String filter, String value) throws Exception {
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/products/search")
+                                .param("page_number", "0")
+                                .param("page_size", "10")
+                                .param(filter, value)
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+        return toSearchResponseDto(mvcResult).getProducts().getContent().size();
+    }
+
+    private double getSearchCacheHits() throws Exception {
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/actuator/metrics/cache.gets")
+                                .param("tag", "cache:productSearch", "result:hit")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+        return objectMapper.readTree(mvcResult.getResponse().getContentAsString())
+                .get("measurements").get(0).get("value").asDouble();
+    }
+
+    private ProductSearchResponseDto toSearchResponseDto(MvcResult mvcResult) throws Exception {
+        JsonNode rootNode = objectMapper.readTree(mvcResult.getResponse().getContentAsString());
+
+        ProductSearchResponseDto responseDto = new ProductSearchResponseDto();
+        responseDto.setProducts(objectMapper.treeToValue(
+                rootNode.get("products"), new TypeReference<CustomPageImpl<ProductDto>>() {
+                }
+        ));
+        responseDto.setAvailableAttributes(objectMapper.treeToValue(
+                rootNode.get("availableAttributes"), new TypeReference<>() {
+                }
+        ));
+        responseDto.setAttributeFacets(objectMapper.treeToValue(
+                rootNode.get("attributeFacets"), new TypeReference<>() {
+                }
+        ));
+        responseDto.setMinPrice(new BigDecimal(rootNode.get("minPrice").asText()));
+        responseDto.setMaxPrice(new BigDecimal(rootNode.get("maxPrice").asText()));
+        if (rootNode.hasNonNull("searchMode")) {
+            responseDto.setSearchMode(SearchMode.valueOf(rootNode.get("searchMode").asText()));
+        }
+        if (rootNode.hasNonNull("estimatedTotal")) {
+            responseDto.setEstimatedTotal(rootNode.get("estimatedTotal").asLong());
+        }
+        if (rootNode.hasNonNull("nextCursor")) {
+            responseDto.setNextCursor(rootNode.get("nextCursor").asText());
+        }
+        if (rootNode.hasNonNull("priceHistogram")) {
+            responseDto.setPriceHistogram(objectMapper.treeToValue(
+                    rootNode.get("priceHistogram"), new TypeReference<>() {
+                    }
+            ));
+        }
+        return responseDto;
+    }
+
+    private ProductFullDto createProductWithImage(String article) throws Exception {
+        MockMultipartFile image = new MockMultipartFile(
+                "images",
+                "test-image-1.jpg",
+                "image/jpeg",
+                TestImages.jpeg()
+        );
+
+        MvcResult mvcResult = mockMvc.perform(multipart("/products")
+                        .file(image)
+                        .param("title", "Test Product " + article)
+                        .param("description", "This is a test product description")
+                        .param("article", article)
+                        .param("price", "99.99")
+                        .param("categoryIds", "1")
+                        .with(csrf())
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isCreated())
+                .andReturn();
+
+        return objectMapper.readValue(mvcResult.getResponse().getContentAsString(),
+                ProductFullDto.class);
+    }
+
+    private void stageUpload(String key, byte[] content) {
+        when(s3AsyncClient.headObject(
+                argThat((HeadObjectRequest request) ->
+                        request != null && key.equals(request.key()))))
+                .thenReturn(CompletableFuture.completedFuture(HeadObjectResponse.builder()
+                        .contentLength((long) content.length)
+                        .contentType("image/jpeg")
+                        .build()));
+        doReturn(CompletableFuture.completedFuture(ResponseBytes.fromByteArray(
+                GetObjectResponse.builder().build(), content)))
+                .when(s3AsyncClient).getObject(
+                        argThat((GetObjectRequest request) ->
+                                request != null && key.equals(request.key())),
+                        any(AsyncResponseTransformer.class));
+    }
+
+    private ArgumentMatcher<DeleteObjectsRequest> deletesKey(String key) {
+        return request -> request != null && request.delete().objects().stream()
+                .anyMatch(object -> key.equals(object.key()));
+    }
+
+    private List<Long> getSortedIds(String filter, String value, int pageSize)
+            throws Exception {
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/products/search")
+                                .param("page_size", String.valueOf(pageSize))
+                                .param("sort", "price,desc")
+                                .param("count", "none")
+                                .param(filter, value)
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+        return toSearchResponseDto(mvcResult).getProducts().getContent().stream()
+                .map(ProductDto::getId)
+                .toList();
+    }
+
+    private long getVersion(Long productId) {
+        return jdbcTemplate.queryForObject("SELECT version FROM products WHERE id = ?",
+                Long.class, productId);
+    }
+
+    private int getReferenceCount(String url) {
+        return jdbcTemplate.queryForObject(
+                "SELECT reference_count FROM image_objects WHERE url = ?", Integer.class, url);
+    }
 }
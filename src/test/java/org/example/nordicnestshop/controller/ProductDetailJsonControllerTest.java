@@ -0,0 +1,112 @@
+package org.example.nordicnestshop.controller;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.example.nordicnestshop.service.ProductService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+@SpringBootTest(webEnvironment =
+        SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = "product.detail.database-json=true")
+class ProductDetailJsonControllerTest {
+
+    private static MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductService productService;
+
+    @BeforeAll
+    static void beforeAll(
+            @Autowired WebApplicationContext applicationContext) {
+        mockMvc = MockMvcBuilders
+                .webAppContextSetup(applicationContext)
+                .apply(springSecurity())
+                .build();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getProductById_matchesMappedDto() throws Exception {
+        for (long id = 1; id <= 6; id++) {
+            MvcResult mvcResult = mockMvc
+                    .perform(
+                            get("/products/" + id)
+                    )
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                    .andReturn();
+
+            JsonNode actual = readTree(mvcResult.getResponse().getContentAsString());
+            JsonNode expected = readTree(objectMapper
+                    .writeValueAsString(productService.getById(id)));
+
+            Assertions.assertEquals(toFieldNames(expected), toFieldNames(actual));
+            Assertions.assertEquals(normalize(expected), normalize(actual));
+        }
+    }
+
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void getProductById_NotFound() throws Exception {
+        mockMvc.perform(get("/products/30"))
+                .andExpect(status().isNotFound());
+    }
+
+    // Prices are compared with their scale, 10.00 and 10.0 are different documents
+    private JsonNode readTree(String json) throws Exception {
+        return objectMapper.reader(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+                .readTree(json);
+    }
+
+    private List<String> toFieldNames(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+
+    // Categories and attributes are sets on the entity, their order is not part of the contract
+    private JsonNode normalize(JsonNode node) {
+        ObjectNode copy = node.deepCopy();
+        copy.set("categoryIds", sorted((ArrayNode) copy.get("categoryIds")));
+        copy.set("attributes", sorted((ArrayNode) copy.get("attributes")));
+        return copy;
+    }
+
+    private ArrayNode sorted(ArrayNode array) {
+        List<JsonNode> elements = new ArrayList<>();
+        array.forEach(elements::add);
+        elements.sort(Comparator.comparing(JsonNode::toString));
+        return objectMapper.createArrayNode().addAll(elements);
+    }
+}
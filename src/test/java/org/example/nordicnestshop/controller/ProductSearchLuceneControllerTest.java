@@ -0,0 +1,317 @@
+package org.example.nordicnestshop.controller;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.example.nordicnestshop.dto.product.PriceBucketDto;
+import org.example.nordicnestshop.dto.product.ProductDto;
+import org.example.nordicnestshop.dto.product.ProductSearchResponseDto;
+import org.example.nordicnestshop.model.enums.SearchMode;
+import org.example.nordicnestshop.service.search.LuceneProductIndex;
+import org.example.nordicnestshop.service.search.ProductSearchCursor;
+import org.example.nordicnestshop.test.utils.CustomPageImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+@SpringBootTest(webEnvironment =
+        SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = {
+        "search.engine=lucene",
+        "search.lucene.directory=target/product-index"
+})
+class ProductSearchLuceneControllerTest {
+
+    private static MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private LuceneProductIndex luceneProductIndex;
+
+    @BeforeAll
+    static void beforeAll(
+            @Autowired WebApplicationContext applicationContext) {
+        mockMvc = MockMvcBuilders
+                .webAppContextSetup(applicationContext)
+                .apply(springSecurity())
+                .build();
+    }
+
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void search_categoriesWithSameType_Success() throws Exception {
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/products/search")
+                                .param("page_number", "0")
+                                .param("page_size", "10")
+                                .param("categoryIds", "4,2")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
+
+        Assertions.assertEquals(List.of(1L, 5L), responseDto.getProducts().getContent().stream()
+                .map(ProductDto::getId).toList());
+    }
+
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void search_indexNotBuilt_AnsweredFromDatabase() throws Exception {
+        ReflectionTestUtils.setField(luceneProductIndex, "generation", -1L);
+        try {
+            MvcResult mvcResult = mockMvc
+                    .perform(
+                            get("/products/search")
+                                    .param("page_number", "0")
+                                    .param("page_size", "9")
+                                    .param("categoryIds", "4,2")
+                    )
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
+
+            Assertions.assertEquals(List.of(1L, 5L), responseDto.getProducts().getContent()
+                    .stream().map(ProductDto::getId).toList());
+        } finally {
+            luceneProductIndex.rebuild();
+        }
+    }
+
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void search_allFilters_Success() throws Exception {
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/products/search")
+                                .param("page_number", "0")
+                                .param("page_size", "10")
+                                .param("minPrice", "100")
+                                .param("maxPrice", "200")
+                                .param("categoryIds", "1")
+                                .param("size", "l")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
+
+        Assertions.assertEquals(List.of(2L), responseDto.getProducts().getContent().stream()
+                .map(ProductDto::getId).toList());
+    }
+
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void search_searchTextRankedByRelevance_Success() throws Exception {
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/products/search")
+                                .param("page_number", "0")
+                                .param("page_size", "10")
+                                .param("searchText", "cat4")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
+
+        Assertions.assertEquals(List.of(4L, 6L), responseDto.getProducts().getContent().stream()
+                .map(ProductDto::getId).toList());
+    }
+
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void search_misspelledSearchText_FallsBackToFuzzy() throws Exception {
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/products/search")
+                                .param("page_number", "0")
+                                .param("page_size", "10")
+                                .param("maxPrice", "120")
+                                .param("searchText", "Chearr")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
+
+        Assertions.assertEquals(SearchMode.FUZZY, responseDto.getSearchMode());
+        Assertions.assertEquals(List.of(1L, 4L), responseDto.getProducts().getContent().stream()
+                .map(ProductDto::getId).sorted().toList());
+    }
+
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void search_facetsAndPricesCoverAllPages_Success() throws Exception {
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/products/search")
+                                .param("page_number", "1")
+                                .param("page_size", "1")
+                                .param("priceBuckets", "4")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
+
+        Assertions.assertEquals(List.of(2L), responseDto.getProducts().getContent().stream()
+                .map(ProductDto::getId).toList());
+        Assertions.assertEquals(Map.of("l", 2L, "m", 1L, "s", 2L, "xxl", 1L),
+                responseDto.getAttributeFacets().get("size"));
+        Assertions.assertEquals(Map.of("black", 2L, "green", 1L),
+                responseDto.getAttributeFacets().get("color"));
+        Assertions.assertEquals(0, new BigDecimal("10").compareTo(responseDto.getMinPrice()));
+        Assertions.assertEquals(0, new BigDecimal("200").compareTo(responseDto.getMaxPrice()));
+        Assertions.assertEquals(List.of(1L, 0L, 4L, 1L), responseDto.getPriceHistogram()
+                .stream().map(PriceBucketDto::getCount).toList());
+    }
+
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void search_cursorPagesSortedByPrice_Success() throws Exception {
+        List<Long> ids = searchAllPagesByCursor(Map.of(
+                "page_size", "2",
+                "sort", "price,desc"));
+
+        Assertions.assertEquals(List.of(5L, 3L, 6L, 2L, 4L, 1L), ids);
+    }
+
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void search_cursorPriceWithMoreDecimals_Success() throws Exception {
+        String cursor = new ProductSearchCursor(ProductSearchCursor.PRICE, Sort.Direction.DESC,
+                "10000.005", Long.MAX_VALUE, SearchMode.EXACT).encode();
+
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/products/search")
+                                .param("page_size", "10")
+                                .param("cursor", cursor)
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        Assertions.assertEquals(6, toSearchResponseDto(mvcResult).getProducts()
+                .getNumberOfElements());
+    }
+
+    @Test
+    @Sql(scripts = "classpath:product/add-product-and-category.sql",
+            executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "classpath:product/delete-product-and-categories.sql",
+            executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void search_estimatedCount_Success() throws Exception {
+        MvcResult mvcResult = mockMvc
+                .perform(
+                        get("/products/search")
+                                .param("page_number", "0")
+                                .param("page_size", "2")
+                                .param("minPrice", "100")
+                                .param("count", "estimate")
+                )
+                .andExpect(status().isOk())
+                .andReturn();
+
+        ProductSearchResponseDto responseDto = toSearchResponseDto(mvcResult);
+
+        Assertions.assertEquals(List.of(2L, 3L), responseDto.getProducts().getContent().stream()
+                .map(ProductDto::getId).toList());
+        Assertions.assertEquals(5L, responseDto.getEstimatedTotal());
+    }
+
+    private List<Long> searchAllPagesByCursor(Map<String, String> params) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        String cursor = "";
+        do {
+            MockHttpServletRequestBuilder request = get("/products/search")
+                    .param("cursor", cursor);
+            params.forEach(request::param);
+            ProductSearchResponseDto responseDto = toSearchResponseDto(mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn());
+            responseDto.getProducts().forEach(product -> ids.add(product.getId()));
+            cursor = responseDto.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private ProductSearchResponseDto toSearchResponseDto(MvcResult mvcResult) throws Exception {
+        JsonNode rootNode = objectMapper.readTree(mvcResult.getResponse().getContentAsString());
+
+        ProductSearchResponseDto responseDto = new ProductSearchResponseDto();
+        responseDto.setProducts(objectMapper.treeToValue(
+                rootNode.get("products"), new TypeReference<CustomPageImpl<ProductDto>>() {
+                }
+        ));
+        responseDto.setAttributeFacets(objectMapper.treeToValue(
+                rootNode.get("attributeFacets"), new TypeReference<>() {
+                }
+        ));
+        responseDto.setMinPrice(new BigDecimal(rootNode.get("minPrice").asText()));
+        responseDto.setMaxPrice(new BigDecimal(rootNode.get("maxPrice").asText()));
+        if (rootNode.hasNonNull("searchMode")) {
+            responseDto.setSearchMode(SearchMode.valueOf(rootNode.get("searchMode").asText()));
+        }
+        if (rootNode.hasNonNull("estimatedTotal")) {
+            responseDto.setEstimatedTotal(rootNode.get("estimatedTotal").asLong());
+        }
+        if (rootNode.hasNonNull("nextCursor")) {
+            responseDto.setNextCursor(rootNode.get("nextCursor").asText());
+        }
+        if (rootNode.hasNonNull("priceHistogram")) {
+            responseDto.setPriceHistogram(objectMapper.treeToValue(
+                    rootNode.get("priceHistogram"), new TypeReference<>() {
+                    }
+            ));
+        }
+        return responseDto;
+    }
+}
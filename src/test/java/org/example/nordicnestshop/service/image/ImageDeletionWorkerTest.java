@@ -0,0 +1,274 @@
+package org.example.nordicnestshop.service.image;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.example.nordicnestshop.service.storage.StorageService;
+import org.example.nordicnestshop.test.utils.TestImages;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatcher;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Error;
+
+@SpringBootTest
+class ImageDeletionWorkerTest {
+    // Storage remembers the stored keys, so a repeated image is only checked, not put
+    private static final Set<String> STORED_KEYS = ConcurrentHashMap.newKeySet();
+
+    private final List<String> usedUrls = new ArrayList<>();
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private ImageDeletionWorker imageDeletionWorker;
+
+    @Autowired
+    private StorageService storageService;
+
+    @Autowired
+    private S3AsyncClient s3AsyncClient;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @TestConfiguration
+    static class TestS3Config {
+        @Bean
+        @Primary
+        public S3AsyncClient s3AsyncClient() {
+            return Mockito.mock(S3AsyncClient.class);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        STORED_KEYS.clear();
+        Mockito.reset(s3AsyncClient);
+        doAnswer(invocation -> {
+            STORED_KEYS.add(invocation.<PutObjectRequest>getArgument(0).key());
+            return CompletableFuture.completedFuture(PutObjectResponse.builder().build());
+        }).when(s3AsyncClient).putObject(any(PutObjectRequest.class),
+                any(AsyncRequestBody.class));
+        doAnswer(invocation ->
+                STORED_KEYS.contains(invocation.<HeadObjectRequest>getArgument(0).key())
+                        ? CompletableFuture.completedFuture(HeadObjectResponse.builder().build())
+                        : CompletableFuture.failedFuture(
+                                NoSuchKeyException.builder().statusCode(404).build()))
+                .when(s3AsyncClient).headObject(any(HeadObjectRequest.class));
+        doAnswer(invocation -> delete(invocation.getArgument(0)))
+                .when(s3AsyncClient).deleteObjects(any(DeleteObjectsRequest.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        usedUrls.forEach(url -> {
+            jdbcTemplate.update("DELETE FROM image_objects WHERE url = ?", url);
+            jdbcTemplate.update("DELETE FROM image_deletions WHERE url = ?", url);
+        });
+    }
+
+    @Test
+    void drain_whenObjectDeleteFails_RetriesFromOutbox() throws Exception {
+        StoredImage image = storeAndReference();
+        final String url = image.imageUrl();
+        final String key = url.substring(url.lastIndexOf('/') + 1);
+        doAnswer(invocation -> {
+            DeleteObjectsRequest request = invocation.getArgument(0);
+            return deletesKey(key).matches(request)
+                    ? CompletableFuture.completedFuture(DeleteObjectsResponse.builder()
+                            .errors(S3Error.builder().key(key).code("SlowDown")
+                                    .message("Slow Down").build())
+                            .build())
+                    : delete(request);
+        }).when(s3AsyncClient).deleteObjects(any(DeleteObjectsRequest.class));
+
+        release(image);
+
+        // Only the key reported as failed stays in the outbox, with a later attempt scheduled
+        verify(s3AsyncClient, timeout(5000)).deleteObjects(Mockito.argThat(deletesKey(key)));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (getAttempts(url) == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        Assertions.assertEquals(1, getAttempts(url));
+        Assertions.assertEquals(0, countDeletions(image.thumbnailUrl()));
+
+        doAnswer(invocation -> delete(invocation.getArgument(0)))
+                .when(s3AsyncClient).deleteObjects(any(DeleteObjectsRequest.class));
+        jdbcTemplate.update("UPDATE image_deletions SET next_attempt_at = now() WHERE url = ?",
+                url);
+        imageDeletionWorker.drain();
+        Assertions.assertEquals(0, countDeletions(url));
+        Assertions.assertFalse(STORED_KEYS.contains(key));
+    }
+
+    @Test
+    void drain_whenObjectDeleteFails_RetriesEveryUrlOfObject() throws Exception {
+        // The object is released under its bucket url and under the public url used now
+        final String key = "shared-" + UUID.randomUUID() + ".webp";
+        final String bucketUrl = storageService.getUrl(key);
+        ReflectionTestUtils.setField(storageService, "publicUrl", "https://cdn.example.com");
+        final String publicUrl = storageService.getUrl(key);
+        usedUrls.addAll(List.of(bucketUrl, publicUrl));
+        List.of(bucketUrl, publicUrl).forEach(url -> jdbcTemplate.update(
+                "INSERT INTO image_objects (url, reference_count) VALUES (?, 0)", url));
+        doAnswer(invocation -> CompletableFuture.completedFuture(DeleteObjectsResponse.builder()
+                .errors(S3Error.builder().key(key).code("SlowDown").message("Slow Down").build())
+                .build()))
+                .when(s3AsyncClient).deleteObjects(any(DeleteObjectsRequest.class));
+
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    imageService.releaseImages(List.of(bucketUrl, publicUrl)));
+            verify(s3AsyncClient, timeout(5000)).deleteObjects(Mockito.argThat(deletesKey(key)));
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((getAttempts(bucketUrl) == 0 || getAttempts(publicUrl) == 0)
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+        } finally {
+            ReflectionTestUtils.setField(storageService, "publicUrl", "");
+        }
+
+        Assertions.assertEquals(1, getAttempts(bucketUrl));
+        Assertions.assertEquals(1, getAttempts(publicUrl));
+    }
+
+    @Test
+    void drain_whileSameImageUploadedAgain_KeepsObject() throws Exception {
+        StoredImage image = storeAndReference();
+        final String url = image.imageUrl();
+        final String key = url.substring(url.lastIndexOf('/') + 1);
+        Assertions.assertTrue(STORED_KEYS.contains(key));
+
+        // The worker stalls while deleting the released object
+        final CompletableFuture<Void> deleting = new CompletableFuture<>();
+        final CompletableFuture<Void> resumeDelete = new CompletableFuture<>();
+        doAnswer(invocation -> {
+            DeleteObjectsRequest request = invocation.getArgument(0);
+            if (deletesKey(key).matches(request)) {
+                deleting.complete(null);
+                resumeDelete.get(10, TimeUnit.SECONDS);
+            }
+            return delete(request);
+        }).when(s3AsyncClient).deleteObjects(any(DeleteObjectsRequest.class));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            release(image);
+            deleting.get(5, TimeUnit.SECONDS);
+
+            // The same image is uploaded again while the deletion is in flight
+            Future<StoredImage> second = executor.submit(this::storeAndReference);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!second.isDone() && !isWaitingForImageObjects()
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            resumeDelete.complete(null);
+
+            Assertions.assertEquals(url, second.get(10, TimeUnit.SECONDS).imageUrl());
+            Assertions.assertTrue(STORED_KEYS.contains(key));
+            Assertions.assertEquals(1, jdbcTemplate.queryForObject(
+                    "SELECT reference_count FROM image_objects WHERE url = ?", Integer.class,
+                    url));
+            Assertions.assertEquals(0, countDeletions(url));
+        } finally {
+            resumeDelete.complete(null);
+            executor.shutdown();
+        }
+    }
+
+    // Uploads the image and references its variants in one transaction, like a product save
+    private StoredImage storeAndReference() {
+        MockMultipartFile file = new MockMultipartFile("images", "test-image.png", "image/png",
+                TestImages.png());
+        StoredImage image = transactionTemplate.execute(status -> {
+            StoredImage storedImage = imageService.uploadImages(List.of(file)).join().get(0);
+            reference(storedImage, 1);
+            return storedImage;
+        });
+        usedUrls.addAll(getUrls(image));
+        return image;
+    }
+
+    private void release(StoredImage image) {
+        transactionTemplate.executeWithoutResult(status -> {
+            reference(image, -1);
+            imageService.releaseImages(getUrls(image));
+        });
+    }
+
+    private void reference(StoredImage image, int delta) {
+        getUrls(image).forEach(url -> jdbcTemplate.query("SELECT reference_image_object(?, ?)",
+                (RowCallbackHandler) rs -> { }, url, delta));
+    }
+
+    private List<String> getUrls(StoredImage image) {
+        return List.of(image.imageUrl(), image.cardUrl(), image.thumbnailUrl());
+    }
+
+    private CompletableFuture<DeleteObjectsResponse> delete(DeleteObjectsRequest request) {
+        request.delete().objects().forEach(object -> STORED_KEYS.remove(object.key()));
+        return CompletableFuture.completedFuture(DeleteObjectsResponse.builder().build());
+    }
+
+    private ArgumentMatcher<DeleteObjectsRequest> deletesKey(String key) {
+        return request -> request != null && request.delete().objects().stream()
+                .anyMatch(object -> key.equals(object.key()));
+    }
+
+    private int getAttempts(String url) {
+        return jdbcTemplate.queryForObject(
+                "SELECT coalesce(max(attempts), 0) FROM image_deletions WHERE url = ?",
+                Integer.class, url);
+    }
+
+    private int countDeletions(String url) {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM image_deletions WHERE url = ?", Integer.class, url);
+    }
+
+    private boolean isWaitingForImageObjects() {
+        return jdbcTemplate.queryForObject("SELECT count(*) > 0 FROM pg_stat_activity "
+                + "WHERE wait_event_type = 'Lock' AND query LIKE '%image_objects%'",
+                Boolean.class);
+    }
+}
@@ -0,0 +1,181 @@
+package org.example.nordicnestshop.service.image;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.example.nordicnestshop.service.storage.StorageService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+@SpringBootTest
+class ImageGarbageCollectorTest {
+    private static final Instant OLD = Instant.now().minus(Duration.ofDays(2));
+
+    @Autowired
+    private ImageGarbageCollector imageGarbageCollector;
+
+    @Autowired
+    private StorageService storageService;
+
+    @Autowired
+    private S3AsyncClient s3AsyncClient;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TestConfiguration
+    static class TestS3Config {
+        @Bean
+        @Primary
+        public S3AsyncClient s3AsyncClient() {
+            S3AsyncClient mockS3Client = Mockito.mock(S3AsyncClient.class);
+
+            // Every key of a batch delete succeeds
+            when(mockS3Client.deleteObjects(any(DeleteObjectsRequest.class)))
+                    .thenReturn(CompletableFuture.completedFuture(
+                            DeleteObjectsResponse.builder().build()));
+
+            return mockS3Client;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        Mockito.clearInvocations(s3AsyncClient);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM image_objects WHERE url LIKE '%/gc-%'");
+        jdbcTemplate.update("DELETE FROM image_deletions WHERE url LIKE '%/gc-%'");
+    }
+
+    @Test
+    void sweep_deletesOnlyOldUnreferencedObjects() {
+        // Referenced under the current and an earlier public url, and a row nothing references
+        addImageObject(storageService.getUrl("gc-referenced.webp"), 1);
+        addImageObject("https://legacy-cdn.example.com/images/gc-legacy.webp", 1);
+        addImageObject(storageService.getUrl("gc-unreferenced.webp"), 0);
+        listPage(null, "page-2", object("gc-referenced.webp", OLD),
+                object("gc-legacy.webp", OLD), object("gc-unreferenced.webp", OLD),
+                object("gc-orphan.webp", OLD));
+        listPage("page-2", null, object("gc-fresh.webp", Instant.now()));
+
+        imageGarbageCollector.sweep();
+
+        Assertions.assertEquals(Set.of("gc-orphan.webp", "gc-unreferenced.webp"),
+                getDeletedKeys());
+    }
+
+    @Test
+    void sweep_mostlyOrphaned_DeletesOrphans() {
+        addImageObject(storageService.getUrl("gc-referenced.webp"), 1);
+        listPage(null, null, object("gc-referenced.webp", OLD),
+                object("gc-orphan-1.webp", OLD), object("gc-orphan-2.webp", OLD));
+
+        imageGarbageCollector.sweep();
+
+        Assertions.assertEquals(Set.of("gc-orphan-1.webp", "gc-orphan-2.webp"),
+                getDeletedKeys());
+    }
+
+    @Test
+    void sweep_queuesOrphansBeforeListingNextPage() {
+        listPage(null, "page-2", object("gc-orphan-1.webp", OLD));
+        AtomicInteger queuedBeforeSecondPage = new AtomicInteger(-1);
+        doAnswer(invocation -> {
+            queuedBeforeSecondPage.set(jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM image_deletions WHERE url LIKE '%/gc-orphan-1.webp'",
+                    Integer.class));
+            return CompletableFuture.completedFuture(ListObjectsV2Response.builder()
+                    .contents(object("gc-orphan-2.webp", OLD))
+                    .build());
+        }).when(s3AsyncClient).listObjectsV2(argThat((ListObjectsV2Request request) ->
+                request != null && "page-2".equals(request.continuationToken())));
+
+        imageGarbageCollector.sweep();
+
+        Assertions.assertEquals(1, queuedBeforeSecondPage.get());
+        Assertions.assertEquals(Set.of("gc-orphan-1.webp", "gc-orphan-2.webp"),
+                getDeletedKeys());
+    }
+
+    @Test
+    void sweep_deletionLimitReached_StopsListing() {
+        ReflectionTestUtils.setField(imageGarbageCollector, "maxDeletionsPerSweep", 2L);
+        listPage(null, "page-2", object("gc-orphan-1.webp", OLD),
+                object("gc-orphan-2.webp", OLD), object("gc-orphan-3.webp", OLD));
+        listPage("page-2", null, object("gc-orphan-4.webp", OLD));
+
+        try {
+            imageGarbageCollector.sweep();
+        } finally {
+            ReflectionTestUtils.setField(imageGarbageCollector, "maxDeletionsPerSweep", 100000L);
+        }
+
+        Assertions.assertEquals(2, getDeletedKeys().size());
+        verify(s3AsyncClient, never()).listObjectsV2(argThat((ListObjectsV2Request request) ->
+                request != null && "page-2".equals(request.continuationToken())));
+    }
+
+    private void addImageObject(String url, int referenceCount) {
+        jdbcTemplate.update("INSERT INTO image_objects (url, reference_count) VALUES (?, ?)",
+                url, referenceCount);
+    }
+
+    private void listPage(String continuationToken, String nextContinuationToken,
+                          S3Object... objects) {
+        doReturn(CompletableFuture.completedFuture(ListObjectsV2Response.builder()
+                .contents(objects)
+                .nextContinuationToken(nextContinuationToken)
+                .build()))
+                .when(s3AsyncClient).listObjectsV2(argThat((ListObjectsV2Request request) ->
+                        request != null && (continuationToken == null
+                                ? request.continuationToken() == null
+                                : continuationToken.equals(request.continuationToken()))));
+    }
+
+    private S3Object object(String key, Instant lastModified) {
+        return S3Object.builder().key(key).lastModified(lastModified).build();
+    }
+
+    private Set<String> getDeletedKeys() {
+        ArgumentCaptor<DeleteObjectsRequest> requests =
+                ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+        verify(s3AsyncClient, atLeastOnce()).deleteObjects(requests.capture());
+        return requests.getAllValues().stream()
+                .flatMap(request -> request.delete().objects().stream())
+                .map(ObjectIdentifier::key)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.nordicnestshop.test.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import org.springframework.core.io.ClassPathResource;
+
+public final class TestImages {
+    private TestImages() {
+    }
+
+    public static byte[] jpeg() {
+        return read("image/test-image.jpg");
+    }
+
+    public static byte[] png() {
+        return read("image/test-image.png");
+    }
+
+    private static byte[] read(String path) {
+        try {
+            return new ClassPathResource(path).getContentAsByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}